@@ -0,0 +1,321 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Versão da BinaryTree com os nós guardados em uma "arena" de vetores,
+ * em vez de um objeto Node por elemento.
+ *
+ * - values[i] → valor do nó i (vetor contíguo de referências)
+ * - left[i], right[i], height[i] → estrutura (ver PrimitiveBinaryTree)
+ *
+ * Os filhos são índices int, então percorrer a árvore não segue ponteiros
+ * de objetos diferentes espalhados pelo heap, e o GC enxerga só alguns
+ * vetores grandes. Posições removidas vão para uma lista livre e são
+ * reusadas; compact() reorganiza os nós em pré-ordem para melhorar a
+ * localidade das buscas. O pool, a compactação e o AVL são os mesmos de
+ * IntBinaryTree e LongBinaryTree (PrimitiveBinaryTree).
+ *
+ * A API pública é a mesma da BinaryTree para as operações principais:
+ * inserção (unitária e em lote), busca, remoção, altura, tamanho,
+ * profundidade, caminhos, LCA e os três percursos. Modos NONE e AVL
+ * (SPLAY é rejeitado com IllegalArgumentException). Ordem estatística
+ * (rank/select), intervalos, multiset, remoção lazy e junção/divisão
+ * ficam só na BinaryTree, que guarda o tamanho de cada subárvore.
+ */
+public class ArenaBinaryTree<T extends Comparable<T>> extends PrimitiveBinaryTree implements Iterable<T> {
+
+    private Object[] values;
+
+    public ArenaBinaryTree() {
+        this(BinaryTree.Balancing.NONE);
+    }
+
+    public ArenaBinaryTree(BinaryTree.Balancing balancing) {
+        this(balancing, 16);
+    }
+
+    /**
+     * @param capacidade quantidade de nós reservada de início
+     */
+    public ArenaBinaryTree(BinaryTree.Balancing balancing, int capacidade) {
+        super(balancing, capacidade);
+        values = new Object[Math.max(capacidade, 1)];
+    }
+
+    @SuppressWarnings("unchecked")
+    private T value(int node) {
+        return (T) values[node];
+    }
+
+    @Override
+    int capacity() {
+        return values.length;
+    }
+
+    @Override
+    void growKeys(int capacidade) {
+        values = Arrays.copyOf(values, capacidade);
+    }
+
+    @Override
+    void copyKey(int de, int para) {
+        values[para] = values[de];
+    }
+
+    @Override
+    void relocateKeys(int[] novoIndice, int capacidade) {
+        Object[] novos = new Object[capacidade];
+        for (int old = 0; old < novoIndice.length; old++)
+            if (novoIndice[old] != NIL) novos[novoIndice[old]] = values[old];
+        values = novos;
+    }
+
+    /**
+     * Solta a referência ao valor da posição liberada.
+     */
+    @Override
+    void clearKey(int node) {
+        values[node] = null;
+    }
+
+
+    // ============================================================
+    //                         INSERÇÃO
+    // ============================================================
+    public void insert(T value) {
+        int topo = 0;
+        int atual = root;
+        boolean esquerda = false;
+        while (atual != NIL) {
+            push(topo++, atual);
+            esquerda = value.compareTo(value(atual)) < 0;
+            atual = esquerda ? left[atual] : right[atual];
+        }
+
+        int novo = allocate();
+        values[novo] = value;
+        link(topo, novo, esquerda);
+    }
+
+    /**
+     * Insere vários valores (um insert por valor).
+     */
+    public void insertAll(Collection<? extends T> lote) {
+        for (T value : lote) insert(value);
+    }
+
+
+    // ============================================================
+    //                         BUSCA
+    // ============================================================
+    public boolean contains(T value) {
+        return find(value) != NIL;
+    }
+
+    private int find(T value) {
+        int node = root;
+        while (node != NIL) {
+            int cmp = value.compareTo(value(node));
+            if (cmp == 0) return node;
+            node = (cmp < 0) ? left[node] : right[node];
+        }
+        return NIL;
+    }
+
+
+    // ============================================================
+    //                         REMOÇÃO
+    // ============================================================
+    /**
+     * Remove um valor da árvore (caso exista), sem recursão.
+     */
+    public void remove(T value) {
+        int topo = 0;
+        int atual = root;
+        while (atual != NIL) {
+            int cmp = value.compareTo(value(atual));
+            if (cmp == 0) break;
+            push(topo++, atual);
+            atual = (cmp < 0) ? left[atual] : right[atual];
+        }
+        if (atual != NIL) unlink(topo, atual);
+    }
+
+
+    // ============================================================
+    //                       PROFUNDIDADE
+    // ============================================================
+    public int depth(T value) {
+        int level = 0;
+        int node = root;
+        while (node != NIL) {
+            int cmp = value.compareTo(value(node));
+            if (cmp == 0) return level;
+            node = (cmp < 0) ? left[node] : right[node];
+            level++;
+        }
+        return -1;
+    }
+
+
+    // ============================================================
+    //                 CAMINHOS E LCA
+    // ============================================================
+    public List<T> pathTo(T value) {
+        List<T> path = new ArrayList<>();
+        int node = root;
+        while (node != NIL) {
+            path.add(value(node));
+            int cmp = value.compareTo(value(node));
+            if (cmp == 0) return path;
+            node = (cmp < 0) ? left[node] : right[node];
+        }
+        path.clear();
+        return path;
+    }
+
+    /**
+     * Caminho entre dois valores: sobe de A até o LCA e desce até B.
+     * Desce uma vez até o ponto de divisão e depois faz as duas descidas
+     * a partir dele, sem percorrer a árvore desde a raiz duas vezes.
+     */
+    public List<T> pathBetween(T a, T b) {
+        List<T> result = new ArrayList<>();
+        int lca = lcaIndex(a, b);
+        if (lca == NIL) return result;
+
+        // LCA → A, invertido para ficar A → LCA
+        if (!appendPath(lca, a, result)) return new ArrayList<>();
+        Collections.reverse(result);
+
+        // LCA → B, sem repetir o LCA
+        int tamanho = result.size();
+        if (!appendPath(lca, b, result)) return new ArrayList<>();
+        result.remove(tamanho);
+        return result;
+    }
+
+    /**
+     * Desce a partir de {@code node} até o valor, adicionando cada nó visitado.
+     */
+    private boolean appendPath(int node, T value, List<T> destino) {
+        while (node != NIL) {
+            destino.add(value(node));
+            int cmp = value.compareTo(value(node));
+            if (cmp == 0) return true;
+            node = (cmp < 0) ? left[node] : right[node];
+        }
+        return false;
+    }
+
+    public T lowestCommonAncestor(T a, T b) {
+        int lca = lcaIndex(a, b);
+        return lca == NIL ? null : value(lca);
+    }
+
+    private int lcaIndex(T a, T b) {
+        int node = root;
+        while (node != NIL) {
+            int ca = a.compareTo(value(node));
+            int cb = b.compareTo(value(node));
+            if (ca < 0 && cb < 0) node = left[node];
+            else if (ca > 0 && cb > 0) node = right[node];
+            else return node;
+        }
+        return NIL;
+    }
+
+
+    // ============================================================
+    //                         PERCURSO
+    // ============================================================
+    @Override
+    public Iterator<T> iterator() {
+        return iterator(BinaryTree.Traversal.IN_ORDER);
+    }
+
+    /**
+     * Iterador na ordem pedida, com pilha de índices (sem alocação por
+     * elemento). Como na BinaryTree, a árvore não pode ser alterada
+     * durante a iteração.
+     */
+    public Iterator<T> iterator(BinaryTree.Traversal ordem) {
+        return new Iterator<T>() {
+            private final int[] pilha = new int[heightOf(root) + 1];
+            private int topo;
+            private int node = root;    // in-ordem: próximo a descer pela esquerda
+            private int anterior = NIL; // pós-ordem: último nó entregue
+
+            {
+                if (ordem == BinaryTree.Traversal.PRE_ORDER && root != NIL) pilha[topo++] = root;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return ordem == BinaryTree.Traversal.PRE_ORDER ? topo > 0 : node != NIL || topo > 0;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                switch (ordem) {
+                    case PRE_ORDER: {
+                        int atual = pilha[--topo];
+                        if (right[atual] != NIL) pilha[topo++] = right[atual];
+                        if (left[atual] != NIL) pilha[topo++] = left[atual];
+                        return value(atual);
+                    }
+                    case POST_ORDER: {
+                        while (true) {
+                            while (node != NIL) {
+                                pilha[topo++] = node;
+                                node = left[node];
+                            }
+                            int atual = pilha[topo - 1];
+                            if (right[atual] != NIL && right[atual] != anterior) {
+                                node = right[atual]; // desce pela direita antes de entregar
+                            } else {
+                                topo--;
+                                anterior = atual;
+                                return value(atual);
+                            }
+                        }
+                    }
+                    default: {
+                        while (node != NIL) {
+                            pilha[topo++] = node;
+                            node = left[node];
+                        }
+                        int atual = pilha[--topo];
+                        node = right[atual];
+                        return value(atual);
+                    }
+                }
+            }
+        };
+    }
+
+    public void inOrder() {
+        print(BinaryTree.Traversal.IN_ORDER);
+    }
+
+    public void preOrder() {
+        print(BinaryTree.Traversal.PRE_ORDER);
+    }
+
+    public void postOrder() {
+        print(BinaryTree.Traversal.POST_ORDER);
+    }
+
+    private void print(BinaryTree.Traversal ordem) {
+        StringBuilder sb = new StringBuilder();
+        for (Iterator<T> it = iterator(ordem); it.hasNext(); )
+            sb.append(it.next()).append(' ');
+        System.out.println(sb);
+    }
+}
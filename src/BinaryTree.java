@@ -1,17 +1,38 @@
-import java.util.ArrayList; 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Implementação genérica de uma Árvore Binária de Busca (BST).
  * 
  * - Armazena elementos comparáveis (Comparable<T>)
  * - Suporta inserção, busca, remoção
- * - Suporta percursos (in-ordem, pré-ordem, pós-ordem)
- * - Calcula altura, profundidade
+ * - Suporta percursos (in-ordem, pré-ordem, pós-ordem) como Iterator/Stream
+ * - Calcula altura, profundidade, tamanho, posição (rank/select)
  * - Encontra caminhos e LCA (ancestral comum)
  * - Exibe a árvore em ASCII
+ * - Opcionalmente se auto-balanceia (AVL), mantendo altura O(log n),
+ *   ou se auto-ajusta (SPLAY), trazendo os valores acessados para a raiz
+ * - Opcionalmente guarda em cada nó um prefixo long da chave, para que a
+ *   maioria das comparações seja uma única comparação de primitivos
+ * - Opcionalmente registra métricas de operação (TreeMetrics, também via JMX)
+ * - Reduções e construção em lote em paralelo (fork/join, ver TreeTasks)
+ * - join/split e união, interseção e diferença de árvores inteiras
+ * - Opcionalmente remove de forma preguiçosa (lápides + compactação)
+ * - Opcionalmente funciona como multiset: valores iguais ocupam um único
+ *   nó com contagem, então a altura depende só dos valores distintos
  */
-public class BinaryTree<T extends Comparable<T>> {
+public class BinaryTree<T extends Comparable<T>> implements Iterable<T> {
 
     // ============================================================
     //                         CLASSE NODE
@@ -26,13 +47,288 @@ public class BinaryTree<T extends Comparable<T>> {
         T value;
         Node<T> left;
         Node<T> right;
+        int height; // altura da subárvore (folha = 0)
+        int size = 1; // quantidade de nós da subárvore
+        long key;     // prefixo de ordenação do valor (0 se a árvore não usa prefixo)
 
         public Node(T value) {
             this.value = value;
         }
     }
 
+    /**
+     * Nó das árvores multiset: guarda quantas vezes o valor está presente.
+     * Só essas árvores criam este tipo; as demais não pagam o campo extra.
+     */
+    static final class CountedNode<T> extends Node<T> {
+        int count = 1;
+
+        CountedNode(T value) {
+            super(value);
+        }
+    }
+
+    /**
+     * Estratégia de balanceamento usada por insert/remove.
+     * - NONE: BST simples (a forma depende da ordem de inserção)
+     * - AVL: rebalanceia com rotações, altura sempre O(log n)
+     * - SPLAY: cada insert, remove, contains, depth, pathTo e visitPath leva
+     *   o nó acessado até a raiz (splay). Não limita a altura, mas o custo
+     *   amortizado segue a frequência de acesso: chaves muito consultadas
+     *   ficam perto da raiz. Como as buscas alteram a forma da árvore, elas
+     *   também são escritas (não use de várias threads sem trava).
+     *   Só a BinaryTree implementa; IntBinaryTree, LongBinaryTree e
+     *   ArenaBinaryTree rejeitam (IllegalArgumentException).
+     */
+    public enum Balancing { NONE, AVL, SPLAY }
+
+    /**
+     * Ordem de visita usada pelos iteradores, spliterators e streams.
+     */
+    public enum Traversal { IN_ORDER, PRE_ORDER, POST_ORDER }
+
     private Node<T> root; // raiz da árvore
+    private final Balancing balancing;
+    private final ToLongFunction<? super T> prefixo; // pode ser null
+    private final boolean multiset;
+    private TreeMetrics metrics; // null = métricas desligadas
+
+    // remoção lazy (ver enableLazyDeletion)
+    private boolean lazy;
+    private double limiteMortos;
+    private int mortos; // lápides (nós com contagem 0) ainda na árvore
+
+    // pilha reutilizável com o caminho percorrido por insert/remove,
+    // usada para atualizar alturas e rebalancear sem recursão
+    @SuppressWarnings("unchecked")
+    private Node<T>[] caminho = (Node<T>[]) new Node[32];
+
+    /**
+     * Cria uma árvore sem balanceamento (comportamento clássico de BST).
+     */
+    public BinaryTree() {
+        this(Balancing.NONE);
+    }
+
+    /**
+     * Cria uma árvore com a estratégia de balanceamento indicada.
+     */
+    public BinaryTree(Balancing balancing) {
+        this(balancing, (ToLongFunction<? super T>) null);
+    }
+
+    /**
+     * Cria uma árvore que calcula uma única vez, por nó, um prefixo long da
+     * chave (ex.: Person::sortPrefix). As buscas comparam primeiro esses
+     * prefixos (como long sem sinal) e só chamam compareTo em empate.
+     *
+     * O prefixo precisa ser coerente com compareTo: se
+     * Long.compareUnsigned(prefixo(a), prefixo(b)) < 0, então a < b.
+     */
+    public BinaryTree(Balancing balancing, ToLongFunction<? super T> prefixo) {
+        this(balancing, prefixo, false);
+    }
+
+    /**
+     * Cria uma árvore que, se {@code multiset} for true, guarda valores
+     * iguais (compareTo == 0) em um único nó com contagem, em vez de uma
+     * cadeia de nós repetidos descendo pela direita:
+     * - insert de um valor existente só incrementa a contagem (o nó mantém
+     *   o primeiro valor inserido)
+     * - remove/removeOne tiram uma ocorrência; removeAll tira todas
+     * - size, rank, select, rangeCount e os percursos contam cada ocorrência
+     *   (o valor aparece repetido nos iteradores), como na árvore comum
+     * A altura e o custo das buscas passam a depender só dos valores distintos.
+     */
+    public BinaryTree(Balancing balancing, ToLongFunction<? super T> prefixo, boolean multiset) {
+        this.balancing = balancing;
+        this.prefixo = prefixo;
+        this.multiset = multiset;
+    }
+
+    /**
+     * Cria uma árvore já preenchida com os valores informados,
+     * construída de forma perfeitamente balanceada (ver insertAll).
+     */
+    public BinaryTree(Balancing balancing, Collection<? extends T> values) {
+        this(balancing);
+        insertAll(values);
+    }
+
+    public Balancing getBalancing() {
+        return balancing;
+    }
+
+    public ToLongFunction<? super T> getPrefixo() {
+        return prefixo;
+    }
+
+    public boolean isMultiset() {
+        return multiset;
+    }
+
+
+    // ============================================================
+    //                         MÉTRICAS
+    // ============================================================
+    /**
+     * Liga as métricas (contagem de operações e comparações, histograma de
+     * profundidade das buscas, latências) e devolve o objeto que as guarda.
+     * Se já estavam ligadas, devolve o mesmo objeto.
+     */
+    public TreeMetrics enableMetrics() {
+        if (metrics == null) metrics = new TreeMetrics(this);
+        return metrics;
+    }
+
+    /**
+     * Desliga as métricas. O objeto devolvido antes mantém os valores já
+     * acumulados (e o registro JMX, se houver), mas não recebe mais nada.
+     */
+    public void disableMetrics() {
+        metrics = null;
+    }
+
+    /**
+     * Métricas atuais, ou null se estiverem desligadas.
+     */
+    public TreeMetrics getMetrics() {
+        return metrics;
+    }
+
+
+    // ============================================================
+    //                REMOÇÃO LAZY (lápides)
+    // ============================================================
+    /**
+     * Liga a remoção lazy: remove passa a só marcar o nó como morto (a
+     * contagem dele vai a 0, ver CountedNode) e diminuir o tamanho dos
+     * ancestrais, em uma única descida, sem retirar o nó nem buscar o
+     * sucessor. Buscas, percursos, rank/select e contagens ignoram as
+     * lápides (subárvores só de lápides nem são visitadas pelos iteradores);
+     * inserir de novo um valor morto reaproveita o nó.
+     *
+     * Quando as lápides passam de {@code maxDeadRatio} (entre 0 e 1) dos
+     * nós, a próxima remoção compacta a árvore (compact), o que dá custo
+     * amortizado O(1) por remoção; a compactação reconstrói a árvore
+     * balanceada, inclusive em NONE e SPLAY. Buscas só leem a árvore e
+     * nunca compactam. Caminhos, LCA e o desenho continuam mostrando a
+     * árvore física, lápides incluídas.
+     *
+     * Ligar o modo não muda a forma da árvore: numa árvore que não é
+     * multiset, os nós atuais só são trocados, no mesmo lugar, por nós com
+     * contagem (O(n), uma vez).
+     */
+    public void enableLazyDeletion(double maxDeadRatio) {
+        if (!(maxDeadRatio > 0 && maxDeadRatio < 1))
+            throw new IllegalArgumentException("maxDeadRatio deve estar entre 0 e 1: " + maxDeadRatio);
+        limiteMortos = maxDeadRatio;
+        if (lazy) return;
+
+        lazy = true;
+        if (!multiset && root != null) root = comContagem(root); // as lápides precisam do campo de contagem
+    }
+
+    /**
+     * Troca cada nó da subárvore por um CountedNode com o mesmo valor,
+     * chave, altura, tamanho e filhos; a forma não muda. Pré-ordem com
+     * pilha explícita: cada cópia troca os próprios filhos pelas cópias deles.
+     */
+    private Node<T> comContagem(Node<T> raiz) {
+        @SuppressWarnings("unchecked")
+        Node<T>[] pilha = (Node<T>[]) new Node[heightOf(raiz) + 2];
+        Node<T> novaRaiz = copiaComContagem(raiz);
+        int topo = 0;
+        pilha[topo++] = novaRaiz;
+        while (topo > 0) {
+            Node<T> node = pilha[--topo];
+            if (node.right != null) pilha[topo++] = node.right = copiaComContagem(node.right);
+            if (node.left != null) pilha[topo++] = node.left = copiaComContagem(node.left);
+        }
+        return novaRaiz;
+    }
+
+    private static <T> Node<T> copiaComContagem(Node<T> node) {
+        CountedNode<T> copia = new CountedNode<>(node.value);
+        copia.key = node.key;
+        copia.height = node.height;
+        copia.size = node.size;
+        copia.left = node.left;
+        copia.right = node.right;
+        return copia;
+    }
+
+    /**
+     * Volta à remoção física, compactando antes as lápides pendentes.
+     */
+    public void disableLazyDeletion() {
+        compact();
+        lazy = false;
+    }
+
+    public boolean isLazyDeletion() {
+        return lazy;
+    }
+
+    /**
+     * Quantidade de lápides ainda na árvore.
+     */
+    public int tombstones() {
+        return mortos;
+    }
+
+    /**
+     * Reconstrói a árvore balanceada só com os valores vivos, descartando
+     * as lápides. O(n); acima de TreeTasks.LIMIAR valores a montagem é em
+     * paralelo. A remoção chama sozinha ao passar do limite, mas pode ser
+     * chamado antes, num momento ocioso. Não faz nada se não há lápides.
+     */
+    public void compact() {
+        if (mortos > 0) rebuild();
+    }
+
+    /**
+     * Reconstrói a árvore balanceada só com os valores vivos. Também usado
+     * pelo TreeSnapshot quando a forma carregada não respeita o AVL.
+     */
+    void rebuild() {
+        @SuppressWarnings("unchecked")
+        T[] vivos = (T[]) new Comparable[size()];
+        int i = 0;
+        for (T value : this) vivos[i++] = value;
+        root = build(vivos, vivos.length > TreeTasks.LIMIAR);
+        mortos = 0;
+    }
+
+
+    // ============================================================
+    //                  COMPARAÇÃO COM PREFIXO
+    // ============================================================
+    private long keyOf(T value) {
+        return prefixo == null ? 0 : prefixo.applyAsLong(value);
+    }
+
+    /**
+     * Cria um nó já com o prefixo do valor calculado.
+     */
+    Node<T> newNode(T value) {
+        return newNode(value, keyOf(value));
+    }
+
+    private Node<T> newNode(T value, long key) {
+        Node<T> node = multiset || lazy ? new CountedNode<>(value) : new Node<>(value);
+        node.key = key;
+        return node;
+    }
+
+    /**
+     * Compara o valor (cujo prefixo já foi calculado) com o valor do nó.
+     * Prefixos diferentes decidem sozinhos; em empate usa compareTo.
+     */
+    private static <T extends Comparable<T>> int compare(T value, long key, Node<T> node) {
+        if (key != node.key) return Long.compareUnsigned(key, node.key);
+        return value.compareTo(node.value);
+    }
 
 
     // ============================================================
@@ -40,24 +336,179 @@ public class BinaryTree<T extends Comparable<T>> {
     // ============================================================
     /**
      * Insere um novo valor na árvore seguindo as regras de BST.
+     * Iterativo: desce guardando o caminho e depois sobe rebalanceando.
+     * No modo multiset, um valor já presente só incrementa a contagem do nó;
+     * com remoção lazy, uma lápide do mesmo valor volta a valer.
      */
     public void insert(T value) {
-        root = insertRecursive(root, value);
+        TreeMetrics m = metrics;
+        long inicio = m == null ? 0 : System.nanoTime();
+
+        long key = keyOf(value);
+        int topo = 0; // também é o número de comparações
+        if (root == null) {
+            root = newNode(value, key);
+        } else {
+            Node<T> atual = root;
+            Node<T> novo = null; // continua null se o valor já existia (multiset)
+            while (true) {
+                push(topo++, atual);
+                int cmp = compare(value, key, atual);
+                if (cmp == 0 && (multiset || countOf(atual) == 0)) {
+                    CountedNode<T> contado = (CountedNode<T>) atual;
+                    if (contado.count++ == 0) { // lápide: o nó volta com o valor novo
+                        mortos--;
+                        atual.value = value;
+                    }
+                    break;
+                }
+                if (cmp < 0) {
+                    if (atual.left == null) { atual.left = novo = newNode(value, key); break; } // vai para a esquerda
+                    atual = atual.left;
+                } else {
+                    if (atual.right == null) { atual.right = novo = newNode(value, key); break; } // vai para a direita
+                    atual = atual.right;
+                }
+            }
+            if (balancing == Balancing.SPLAY) {
+                if (novo != null) splay(topo, novo);
+                else splayLast(topo); // o nó reaproveitado é o último do caminho
+            } else {
+                fixUp(topo);
+            }
+        }
+
+        if (m != null) m.recordInsert(topo, System.nanoTime() - inicio);
     }
 
+
+    // ============================================================
+    //                     INSERÇÃO EM LOTE
+    // ============================================================
     /**
-     * Inserção recursiva padrão de árvore binária de busca.
+     * Insere vários valores de uma vez.
+     *
+     * O lote é ordenado uma única vez (entrada já ordenada custa O(n)).
+     * Se a árvore está vazia, ou o lote é grande em relação a ela, os valores
+     * atuais e o lote são intercalados e a árvore é reconstruída balanceada
+     * em tempo linear, sem descer da raiz para cada elemento. Lotes pequenos
+     * são inseridos um a um.
      */
-    private Node<T> insertRecursive(Node<T> current, T value) {
-        if (current == null)
-            return new Node<>(value); // encontrou posição vazia
+    public void insertAll(Collection<? extends T> values) {
+        @SuppressWarnings("unchecked")
+        T[] lote = (T[]) values.toArray(new Comparable[0]);
+        if (lote.length == 0) return;
+        Arrays.sort(lote);
+        insertSorted(lote);
+    }
 
-        if (value.compareTo(current.value) < 0)
-            current.left = insertRecursive(current.left, value);  // vai para a esquerda
-        else
-            current.right = insertRecursive(current.right, value); // vai para a direita
+    /**
+     * Insere um lote que já está em ordem crescente (não é reordenado).
+     */
+    public void insertSorted(T[] lote) {
+        insertSorted(lote, false);
+    }
+
+    /**
+     * Como insertAll, mas usando todos os núcleos: o lote é ordenado com
+     * Arrays.parallelSort e a árvore balanceada é montada dividindo o vetor
+     * ao meio em tarefas fork/join (as duas metades de cada nó são montadas
+     * ao mesmo tempo). A intercalação com os valores atuais continua
+     * sequencial, O(n). O prefixo, se houver, é calculado em várias threads.
+     */
+    public void parallelInsertAll(Collection<? extends T> values) {
+        @SuppressWarnings("unchecked")
+        T[] lote = (T[]) values.toArray(new Comparable[0]);
+        if (lote.length == 0) return;
+        Arrays.parallelSort(lote);
+        insertSorted(lote, true);
+    }
+
+    private void insertSorted(T[] lote, boolean paralelo) {
+        if (root == null) {
+            root = build(lote, paralelo);
+            return;
+        }
+
+        List<T> atuais = new ArrayList<>();
+        collectInOrder(atuais);
+        int n = atuais.size();
+
+        // poucos elementos: descer da raiz para cada um é mais barato
+        // que reconstruir a árvore inteira
+        if ((long) lote.length * (32 - Integer.numberOfLeadingZeros(n)) < n) {
+            for (T value : lote) insert(value);
+            return;
+        }
+
+        root = build(merge(atuais, lote), paralelo);
+        mortos = 0; // a reconstrução só leva os valores vivos
+    }
+
+    /**
+     * Intercala os valores atuais (em ordem) com o lote ordenado.
+     * Em empate o valor existente vem primeiro, como faria o insert.
+     */
+    @SuppressWarnings("unchecked")
+    private T[] merge(List<T> atuais, T[] lote) {
+        T[] todos = (T[]) new Comparable[atuais.size() + lote.length];
+        int i = 0, j = 0, k = 0;
+        while (i < atuais.size() && j < lote.length) {
+            if (lote[j].compareTo(atuais.get(i)) < 0) todos[k++] = lote[j++];
+            else todos[k++] = atuais.get(i++);
+        }
+        while (i < atuais.size()) todos[k++] = atuais.get(i++);
+        while (j < lote.length) todos[k++] = lote[j++];
+        return todos;
+    }
+
+    /**
+     * Monta a árvore balanceada com todos os valores ordenados. No modo
+     * multiset, cada sequência de valores iguais vira um único nó com a
+     * contagem da sequência (fica o primeiro valor, como no insert).
+     */
+    private Node<T> build(T[] valores, boolean paralelo) {
+        if (!multiset) return build(valores, null, valores.length, paralelo);
+
+        @SuppressWarnings("unchecked")
+        T[] distintos = (T[]) new Comparable[valores.length];
+        int[] contagens = new int[valores.length];
+        int d = 0;
+        for (T value : valores) {
+            if (d > 0 && value.compareTo(distintos[d - 1]) == 0) contagens[d - 1]++;
+            else { distintos[d] = value; contagens[d++] = 1; }
+        }
+        return build(distintos, contagens, d, paralelo);
+    }
+
+    private Node<T> build(T[] valores, int[] contagens, int n, boolean paralelo) {
+        return paralelo ? TreeTasks.build(this, valores, contagens, 0, n - 1)
+                        : buildBalanced(valores, contagens, 0, n - 1);
+    }
+
+    /**
+     * Monta uma árvore perfeitamente balanceada a partir de valores ordenados
+     * (o elemento do meio vira a raiz). Cada nó é criado uma única vez: O(n).
+     * A recursão tem profundidade O(log n).
+     */
+    Node<T> buildBalanced(T[] valores, int[] contagens, int ini, int fim) {
+        if (ini > fim) return null;
+
+        int meio = (ini + fim) >>> 1;
+        Node<T> node = newNode(valores[meio]);
+        if (contagens != null) ((CountedNode<T>) node).count = contagens[meio];
+        node.left = buildBalanced(valores, contagens, ini, meio - 1);
+        node.right = buildBalanced(valores, contagens, meio + 1, fim);
+        update(node);
+        return node;
+    }
 
-        return current;
+    /**
+     * Copia os valores em ordem para a lista.
+     */
+    private void collectInOrder(List<T> destino) {
+        for (T value : this)
+            destino.add(value);
     }
 
 
@@ -68,57 +519,165 @@ public class BinaryTree<T extends Comparable<T>> {
      * Retorna true se o valor está presente na árvore.
      */
     public boolean contains(T value) {
-        return containsRecursive(root, value);
-    }
+        TreeMetrics m = metrics;
+        if (m == null && balancing != Balancing.SPLAY) return find(value) != null;
 
-    private boolean containsRecursive(Node<T> node, T value) {
-        if (node == null) return false;
-        if (node.value.equals(value)) return true;
+        long inicio = m == null ? 0 : System.nanoTime();
+        int nivel = descend(value);
+        if (m != null) recordLookup(m, nivel, inicio);
+        return nivel >= 0;
+    }
 
-        // decide se busca pela esquerda ou direita
-        return (value.compareTo(node.value) < 0)
-                ? containsRecursive(node.left, value)
-                : containsRecursive(node.right, value);
+    /**
+     * Busca iterativa: uma única comparação por nível.
+     * Visível no pacote para o TreePrinter desenhar só uma subárvore.
+     */
+    Node<T> find(T value) {
+        long key = keyOf(value);
+        Node<T> node = root;
+        while (node != null) {
+            int cmp = compare(value, key, node);
+            if (cmp == 0) return countOf(node) > 0 ? node : copiaViva(node, value, key, null);
+
+            // decide se busca pela esquerda ou direita
+            node = (cmp < 0) ? node.left : node.right;
+        }
+        return null;
     }
 
 
     // ============================================================
     //                         PERCURSOS
     // ============================================================
-    public void inOrder() {
-        inOrderRecursive(root);
-        System.out.println();
+    /**
+     * Iterador in-ordem (valores em ordem crescente).
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return iterator(Traversal.IN_ORDER);
+    }
+
+    /**
+     * Iterador preguiçoso na ordem pedida, com pilha explícita.
+     */
+    public Iterator<T> iterator(Traversal ordem) {
+        return new TreeSpliterator<>(root, ordem);
     }
 
-    private void inOrderRecursive(Node<T> node) {
-        if (node == null) return;
-        inOrderRecursive(node.left);
-        System.out.print(node.value + " "); // visita
-        inOrderRecursive(node.right);
+    /**
+     * Spliterator in-ordem; divide ao longo das subárvores, permitindo
+     * que stream().parallel() distribua o trabalho entre os núcleos.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return spliterator(Traversal.IN_ORDER);
     }
 
-    public void preOrder() {
-        preOrderRecursive(root);
-        System.out.println();
+    public Spliterator<T> spliterator(Traversal ordem) {
+        return new TreeSpliterator<>(root, ordem);
+    }
+
+    /**
+     * Stream dos valores em ordem crescente.
+     */
+    public Stream<T> stream() {
+        return stream(Traversal.IN_ORDER);
+    }
+
+    public Stream<T> stream(Traversal ordem) {
+        return StreamSupport.stream(spliterator(ordem), false);
+    }
+
+    public void inOrder() {
+        print(Traversal.IN_ORDER);
     }
 
-    private void preOrderRecursive(Node<T> node) {
-        if (node == null) return;
-        System.out.print(node.value + " "); // visita
-        preOrderRecursive(node.left);
-        preOrderRecursive(node.right);
+    public void preOrder() {
+        print(Traversal.PRE_ORDER);
     }
 
     public void postOrder() {
-        postOrderRecursive(root);
-        System.out.println();
+        print(Traversal.POST_ORDER);
+    }
+
+    /**
+     * Monta a linha inteira do percurso e escreve no console de uma só vez.
+     */
+    private void print(Traversal ordem) {
+        StringBuilder sb = new StringBuilder();
+        for (Iterator<T> it = iterator(ordem); it.hasNext(); )
+            sb.append(it.next()).append(' '); // visita
+        System.out.println(sb);
+    }
+
+
+    // ============================================================
+    //                OPERAÇÕES PARALELAS (fork/join)
+    // ============================================================
+    /**
+     * Aplica a ação a cada valor usando todos os núcleos (sem ordem
+     * definida, como Stream.forEach). A ação precisa ser segura para
+     * várias threads. A árvore não pode mudar durante a chamada.
+     */
+    public void parallelForEach(Consumer<? super T> acao) {
+        TreeTasks.forEach(root, acao);
+    }
+
+    /**
+     * Redução em paralelo, com o mesmo contrato de Stream.reduce(identidade,
+     * acumulador, combinador): combinador associativo e compatível com o
+     * acumulador. Os pedaços são combinados na ordem crescente dos valores.
+     */
+    public <U> U parallelReduce(U identidade, BiFunction<U, ? super T, U> acumulador,
+                                BinaryOperator<U> combinador) {
+        return TreeTasks.reduce(root, identidade, acumulador, combinador);
+    }
+
+    /**
+     * Quantidade de valores que passam pelo filtro, em paralelo.
+     * Para contar por faixa de valores, rangeCount é O(altura).
+     */
+    public long parallelCount(Predicate<? super T> filtro) {
+        return TreeTasks.count(root, filtro);
+    }
+
+
+    // ============================================================
+    //                   CONSULTAS POR INTERVALO
+    // ============================================================
+    /**
+     * Valores entre {@code from} e {@code to} (ambos inclusive), em ordem.
+     */
+    public Stream<T> range(T from, T to) {
+        return range(from, true, to, true);
     }
 
-    private void postOrderRecursive(Node<T> node) {
-        if (node == null) return;
-        postOrderRecursive(node.left);
-        postOrderRecursive(node.right);
-        System.out.print(node.value + " "); // visita
+    /**
+     * Stream preguiçoso dos valores no intervalo, em ordem crescente.
+     * Subárvores fora do intervalo são podadas sem serem visitadas.
+     * Um limite null significa "sem limite" daquele lado.
+     */
+    public Stream<T> range(T from, boolean fromInclusive, T to, boolean toInclusive) {
+        long tamanho = rangeCount(from, fromInclusive, to, toInclusive);
+        return StreamSupport.stream(
+                new TreeSpliterator<>(root, from, fromInclusive, to, toInclusive, tamanho), false);
+    }
+
+    /**
+     * Quantidade de valores entre {@code from} e {@code to} (ambos inclusive).
+     */
+    public int rangeCount(T from, T to) {
+        return rangeCount(from, true, to, true);
+    }
+
+    /**
+     * Quantidade de valores no intervalo em O(altura), usando o tamanho das
+     * subárvores: (valores abaixo do fim) - (valores abaixo do início).
+     */
+    public int rangeCount(T from, boolean fromInclusive, T to, boolean toInclusive) {
+        int ateFim = (to == null) ? size() : countBelow(to, toInclusive);
+        int antesDoInicio = (from == null) ? 0 : countBelow(from, !fromInclusive);
+        return Math.max(0, ateFim - antesDoInicio);
     }
 
 
@@ -126,55 +685,430 @@ public class BinaryTree<T extends Comparable<T>> {
     //                         REMOÇÃO
     // ============================================================
     /**
-     * Remove um valor da árvore (caso exista).
+     * Remove um valor da árvore (caso exista). Com valores repetidos, remove
+     * uma única ocorrência (o mesmo que removeOne).
      */
     public void remove(T value) {
-        root = removeRecursive(root, value);
+        removeOne(value);
+    }
+
+    /**
+     * Remove uma ocorrência do valor. Retorna false se ele não existir.
+     */
+    public boolean removeOne(T value) {
+        return delete(value, false) > 0;
     }
 
     /**
-     * Retorna o menor valor da subárvore (usado ao remover um nó com 2 filhos).
+     * Remove todas as ocorrências do valor e retorna quantas eram.
+     * No modo multiset é uma única remoção de nó; sem ele, cada cópia
+     * é um nó separado e é removida por vez.
      */
-    private T encontrarMenorValor(Node<T> node) {
-        while (node.left != null)
-            node = node.left;
-        return node.value;
+    public int removeAll(T value) {
+        if (multiset) return delete(value, true);
+
+        int removidos = 0;
+        while (delete(value, false) > 0) removidos++;
+        return removidos;
     }
 
     /**
-     * Algoritmo completo de remoção em BST:
+     * Retira uma ocorrência do valor (ou todas, se {@code todas}) e retorna
+     * quantas foram retiradas (0 se o valor não existe).
+     *
+     * Algoritmo completo de remoção em BST, sem recursão:
      * - Caso 1: nó folha → remover direto
      * - Caso 2: nó com 1 filho → substituir pelo filho
-     * - Caso 3: nó com 2 filhos → substituir pelo menor da subárvore direita
+     * - Caso 3: nó com 2 filhos → substituir pelo menor da subárvore direita,
+     *   que é encontrado continuando a mesma descida (não há segunda busca)
+     * No modo multiset, se sobrar alguma ocorrência, o nó fica e só a
+     * contagem diminui. Com remoção lazy o nó sempre fica (vira lápide).
      */
-    private Node<T> removeRecursive(Node<T> current, T value) {
-        if (current == null) return null;
+    private int delete(T value, boolean todas) {
+        TreeMetrics m = metrics;
+        long inicio = m == null ? 0 : System.nanoTime();
+
+        int topo = 0;
+        long key = keyOf(value);
+        Node<T> atual = root;
+
+        // desce até o nó procurado guardando os ancestrais
+        while (atual != null) {
+            int cmp = compare(value, key, atual);
+            if (cmp == 0) break;
+            push(topo++, atual);
+            atual = (cmp < 0) ? atual.left : atual.right;
+        }
+        if (atual != null && countOf(atual) == 0) {
+            // lápide: sem multiset, pode haver uma cópia viva do valor abaixo dela
+            Arrays.fill(caminho, 0, topo, null);
+            topo = pathToLive(value, key);
+            if (topo < 0) {
+                atual = null;
+                topo = 0;
+            } else {
+                atual = caminho[topo];
+                caminho[topo] = null;
+            }
+        }
+        if (atual == null) { // não existe
+            if (balancing == Balancing.SPLAY) splayLast(topo);
+            if (m != null) m.recordRemove(topo, false, System.nanoTime() - inicio);
+            return 0;
+        }
 
-        if (value.compareTo(current.value) < 0)
-            current.left = removeRecursive(current.left, value);
+        int comparacoes = topo + 1;
+        int removidos = countOf(atual);
+        if (lazy || (removidos > 1 && !todas)) {
+            // o nó continua: multiset com ocorrências sobrando, ou lápide (remoção lazy)
+            int tirados = todas ? removidos : 1;
+            CountedNode<T> contado = (CountedNode<T>) atual;
+            contado.count -= tirados;
+            push(topo++, atual);
+            if (balancing == Balancing.SPLAY) splayLast(topo);
+            else fixUp(topo); // só tamanhos mudam: não há rotação
+            if (m != null) m.recordRemove(comparacoes, false, System.nanoTime() - inicio);
+
+            if (contado.count == 0 && ++mortos > limiteMortos * (mortos + size()))
+                compact();
+            return tirados;
+        }
 
-        else if (value.compareTo(current.value) > 0)
-            current.right = removeRecursive(current.right, value);
+        boolean doisFilhos = atual.left != null && atual.right != null;
+        if (doisFilhos) {
+            // ---- CASO 3: 2 filhos ----
+            Node<T> alvo = atual;
+            push(topo++, alvo);
+            atual = alvo.right;
+            while (atual.left != null) {
+                push(topo++, atual);
+                atual = atual.left;
+            }
+            alvo.value = atual.value; // substitui pelo sucessor
+            alvo.key = atual.key;
+            if (multiset) ((CountedNode<T>) alvo).count = countOf(atual);
+        }
 
-        else {
-            // ---- CASO 1: nó sem filhos ----
-            if (current.left == null && current.right == null)
-                return null;
+        // ---- CASOS 1 e 2: o nó físico removido tem no máximo 1 filho ----
+        Node<T> filho = (atual.left != null) ? atual.left : atual.right;
+        replaceChild(topo == 0 ? null : caminho[topo - 1], atual, filho);
 
-            // ---- CASO 2: só 1 filho ----
-            if (current.left == null)
-                return current.right;
+        if (balancing == Balancing.SPLAY) splayLast(topo); // o pai do nó removido sobe
+        else fixUp(topo);
+        if (m != null) m.recordRemove(comparacoes, doisFilhos, System.nanoTime() - inicio);
+        return removidos;
+    }
 
-            if (current.right == null)
-                return current.left;
 
-            // ---- CASO 3: 2 filhos ----
-            T menorValor = encontrarMenorValor(current.right);
-            current.value = menorValor; // substitui pelo sucessor
-            current.right = removeRecursive(current.right, menorValor);
+    // ============================================================
+    //                 CAMINHO DE ATUALIZAÇÃO
+    // ============================================================
+    /**
+     * Empilha um nó no caminho reutilizável, crescendo o vetor se preciso.
+     */
+    private void push(int topo, Node<T> node) {
+        if (topo == caminho.length)
+            caminho = Arrays.copyOf(caminho, topo * 2);
+        caminho[topo] = node;
+    }
+
+    /**
+     * Troca o filho {@code antigo} de {@code pai} por {@code novo}
+     * (ou a raiz, quando não há pai).
+     */
+    private void replaceChild(Node<T> pai, Node<T> antigo, Node<T> novo) {
+        if (pai == null) root = novo;
+        else if (pai.left == antigo) pai.left = novo;
+        else pai.right = novo;
+    }
+
+    /**
+     * Sobe pelo caminho empilhado (do nó mais fundo até a raiz) atualizando
+     * alturas e aplicando as rotações necessárias.
+     */
+    private void fixUp(int topo) {
+        for (int i = topo - 1; i >= 0; i--) {
+            Node<T> node = caminho[i];
+            caminho[i] = null; // não segura referências de nós removidos
+
+            Node<T> novaRaiz = rebalance(node);
+            if (novaRaiz != node)
+                replaceChild(i == 0 ? null : caminho[i - 1], node, novaRaiz);
+        }
+    }
+
+
+    /**
+     * Remoção lazy fora do multiset, quando a primeira cópia do valor no
+     * caminho é uma lápide: a primeira cópia viva, se existir, é a
+     * k-ésima ocorrência viva da árvore, k = quantidade de valores vivos
+     * menores. Desce até ela pelos tamanhos, empilhando os ancestrais e a
+     * própria (em caminho[retorno]). Retorna -1 se não há cópia viva.
+     */
+    private int pathToLive(T value, long key) {
+        int k = countBelow(value, false);
+        if (multiset || k >= size()) return -1;
+
+        int topo = 0;
+        Node<T> node = root;
+        while (true) {
+            push(topo, node);
+            int esquerda = sizeOf(node.left), aqui = countOf(node);
+            if (k < esquerda) {
+                node = node.left;
+            } else if (k < esquerda + aqui) {
+                break;
+            } else {
+                k -= esquerda + aqui;
+                node = node.right;
+            }
+            topo++;
+        }
+        if (compare(value, key, node) == 0) return topo;
+        Arrays.fill(caminho, 0, topo + 1, null);
+        return -1;
+    }
+
+    /**
+     * Mesma ideia de pathToLive, só para leitura e a partir da lápide (as
+     * outras cópias do valor, se houver, estão na subárvore do primeiro nó
+     * igual do caminho): posição da primeira cópia viva entre as
+     * ocorrências vivas da subárvore, ou -1 se todas são menores que o
+     * valor. No multiset cada valor tem um único nó, então é sempre -1.
+     *
+     * Esta e as duas seguintes rodam nas buscas (contains, depth, pathTo,
+     * visitPath), então só leem a árvore: nada de caminho compartilhado,
+     * que faria duas leituras simultâneas se atrapalharem.
+     */
+    private int liveRank(Node<T> lapide, T value, long key) {
+        if (multiset) return -1;
+
+        int k = 0; // ocorrências vivas menores que o valor na subárvore
+        for (Node<T> node = lapide; node != null; ) {
+            if (compare(value, key, node) <= 0) {
+                node = node.left;
+            } else {
+                k += sizeOf(node.left) + countOf(node);
+                node = node.right;
+            }
+        }
+        return k < lapide.size ? k : -1;
+    }
+
+    /**
+     * Cópia viva abaixo da lápide, ou null. Cada nó visitado depois da
+     * lápide vai para o visitante (se não for null).
+     */
+    private Node<T> copiaViva(Node<T> lapide, T value, long key, Consumer<? super T> visitante) {
+        int k = liveRank(lapide, value, key);
+        if (k < 0) return null;
+
+        Node<T> node = lapide;
+        while (true) {
+            int esquerda = sizeOf(node.left), aqui = countOf(node);
+            if (k < esquerda) {
+                node = node.left;
+            } else if (k < esquerda + aqui) {
+                break;
+            } else {
+                k -= esquerda + aqui;
+                node = node.right;
+            }
+            if (visitante != null) visitante.accept(node.value);
+        }
+        return compare(value, key, node) == 0 ? node : null;
+    }
+
+    /**
+     * Nível da cópia viva abaixo da lápide que está no nível {@code nivel},
+     * no formato de descend (-1 - visitados se não houver). Sem alocação.
+     */
+    private int liveLevel(Node<T> lapide, T value, long key, int nivel) {
+        int k = liveRank(lapide, value, key);
+        if (k < 0) return -1 - (nivel + 1);
+
+        int passos = 0;
+        Node<T> node = lapide;
+        while (true) {
+            int esquerda = sizeOf(node.left), aqui = countOf(node);
+            if (k < esquerda) {
+                node = node.left;
+            } else if (k < esquerda + aqui) {
+                break;
+            } else {
+                k -= esquerda + aqui;
+                node = node.right;
+            }
+            passos++;
+        }
+        return compare(value, key, node) == 0 ? nivel + passos : -1 - (nivel + 1 + passos);
+    }
+
+
+    // ============================================================
+    //                 BALANCEAMENTO (AVL)
+    // ============================================================
+    static int heightOf(Node<?> node) {
+        return node == null ? -1 : node.height;
+    }
+
+    static int sizeOf(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Ocorrências do valor guardadas no nó (sempre 1 fora do modo multiset).
+     */
+    static int countOf(Node<?> node) {
+        return node instanceof CountedNode<?> c ? c.count : 1;
+    }
+
+    /**
+     * Recalcula altura e tamanho do nó a partir dos filhos.
+     * O tamanho conta ocorrências, não nós.
+     */
+    static void update(Node<?> node) {
+        node.height = 1 + Math.max(heightOf(node.left), heightOf(node.right));
+        node.size = countOf(node) + sizeOf(node.left) + sizeOf(node.right);
+    }
+
+    /**
+     * Atualiza a altura do nó e, no modo AVL, corrige o fator de balanceamento
+     * com rotação simples ou dupla. Retorna a nova raiz da subárvore.
+     */
+    private Node<T> rebalance(Node<T> node) {
+        update(node);
+        if (balancing != Balancing.AVL) return node;
+
+        int fator = heightOf(node.left) - heightOf(node.right);
+
+        // pesado à esquerda
+        if (fator > 1) {
+            if (heightOf(node.left.left) < heightOf(node.left.right))
+                node.left = rotateLeft(node.left); // caso esquerda-direita
+            return rotateRight(node);
+        }
+
+        // pesado à direita
+        if (fator < -1) {
+            if (heightOf(node.right.right) < heightOf(node.right.left))
+                node.right = rotateRight(node.right); // caso direita-esquerda
+            return rotateLeft(node);
+        }
+
+        return node;
+    }
+
+
+
+    // ============================================================
+    //                  AUTO-AJUSTE (SPLAY)
+    // ============================================================
+    /**
+     * Desce até o valor guardando o caminho e leva até a raiz o nó
+     * encontrado (ou, se não existir, o último nó visitado).
+     * Retorna o mesmo que descend: o nível antes do splay, ou
+     * -1 - (quantidade de nós visitados).
+     */
+    private int splayTo(T value) {
+        int topo = 0;
+        long key = keyOf(value);
+        Node<T> node = root;
+        while (node != null) {
+            int cmp = compare(value, key, node);
+            if (cmp == 0) break;
+            push(topo++, node);
+            node = (cmp < 0) ? node.left : node.right;
+        }
+
+        if (node != null) {
+            int nivel = countOf(node) > 0 ? topo : liveLevel(node, value, key, topo);
+            splay(topo, node);
+            return nivel;
+        }
+        splayLast(topo);
+        return -1 - topo;
+    }
+
+    /**
+     * Leva até a raiz o último nó do caminho empilhado (usado pelo remove,
+     * cujo último nó é o pai do nó retirado e precisa ter altura/tamanho
+     * recalculados).
+     */
+    private void splayLast(int topo) {
+        if (topo == 0) return;
+        Node<T> x = caminho[topo - 1];
+        caminho[topo - 1] = null;
+        update(x);
+        splay(topo - 1, x);
+    }
+
+    /**
+     * Splay de baixo para cima: caminho[0..topo-1] são os ancestrais de x
+     * (caminho[0] é a raiz). A cada passo x sobe dois níveis:
+     * - zig-zig (x e o pai são filhos do mesmo lado): gira o avô e depois o pai
+     * - zig-zag (lados opostos): gira o pai e depois o avô
+     * e, se sobrar um só ancestral, uma rotação simples (zig).
+     * Toda rotação recalcula altura e tamanho dos nós que mexe; como todos
+     * os ancestrais de x são girados em algum passo, ao final todos estão
+     * corretos.
+     */
+    private void splay(int topo, Node<T> x) {
+        while (topo >= 2) {
+            Node<T> pai = caminho[topo - 1];
+            Node<T> avo = caminho[topo - 2];
+            caminho[topo - 1] = caminho[topo - 2] = null;
+            topo -= 2;
+
+            if (avo.left == pai) {
+                if (pai.left == x) {
+                    rotateRight(rotateRight(avo));  // zig-zig
+                } else {
+                    avo.left = rotateLeft(pai);     // zig-zag
+                    rotateRight(avo);
+                }
+            } else {
+                if (pai.right == x) {
+                    rotateLeft(rotateLeft(avo));    // zig-zig
+                } else {
+                    avo.right = rotateRight(pai);   // zig-zag
+                    rotateLeft(avo);
+                }
+            }
+            replaceChild(topo == 0 ? null : caminho[topo - 1], avo, x);
         }
 
-        return current;
+        if (topo == 1) { // zig
+            Node<T> pai = caminho[0];
+            caminho[0] = null;
+            if (pai.left == x) rotateRight(pai);
+            else rotateLeft(pai);
+        }
+        root = x;
+    }
+
+    /**
+     * Rotação à direita: o filho esquerdo sobe e vira a nova raiz.
+     */
+    private static <T> Node<T> rotateRight(Node<T> node) {
+        Node<T> pivo = node.left;
+        node.left = pivo.right;
+        pivo.right = node;
+        update(node);
+        update(pivo);
+        return pivo;
+    }
+
+    /**
+     * Rotação à esquerda: o filho direito sobe e vira a nova raiz.
+     */
+    private static <T> Node<T> rotateLeft(Node<T> node) {
+        Node<T> pivo = node.right;
+        node.right = pivo.left;
+        pivo.left = node;
+        update(node);
+        update(pivo);
+        return pivo;
     }
 
 
@@ -182,20 +1116,94 @@ public class BinaryTree<T extends Comparable<T>> {
     //                       ALTURA DA ÁRVORE
     // ============================================================
     /**
-     * Retorna altura da árvore.
-     * Altura de árvore vazia = -1
+     * Retorna altura da árvore em O(1) (mantida em cada nó, então não há
+     * o que paralelizar). Altura de árvore vazia = -1
      */
     public int height() {
-        return heightRecursive(root);
+        return heightOf(root);
+    }
+
+    /**
+     * Quantidade de elementos da árvore, em O(1).
+     */
+    public int size() {
+        return sizeOf(root);
+    }
+
+    public boolean isEmpty() {
+        return sizeOf(root) == 0; // com remoção lazy pode restar só lápides
+    }
+
+
+    // ============================================================
+    //                 ESTATÍSTICAS DE ORDEM
+    // ============================================================
+    /**
+     * Quantidade de elementos estritamente menores que o valor, em O(altura).
+     * O valor não precisa estar na árvore.
+     */
+    public int countLessThan(T value) {
+        return countBelow(value, false);
+    }
+
+    /**
+     * Conta os elementos menores que o valor (ou menores/iguais, se inclusive).
+     */
+    private int countBelow(T value, boolean inclusive) {
+        int count = 0;
+        long key = keyOf(value);
+        Node<T> node = root;
+        while (node != null) {
+            int cmp = compare(value, key, node);
+            if (cmp < 0 || (cmp == 0 && !inclusive)) {
+                node = node.left;
+            } else {
+                count += sizeOf(node.left) + countOf(node); // subárvore esquerda + o próprio nó
+                node = node.right;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Quantas vezes o valor está na árvore. No modo multiset é a contagem
+     * do nó (uma busca); sem ele, conta as cópias pelos tamanhos das
+     * subárvores, em O(altura). Não faz splay.
+     */
+    public int count(T value) {
+        if (!multiset) return rangeCount(value, true, value, true);
+
+        Node<T> node = find(value);
+        return node == null ? 0 : countOf(node);
     }
 
-    private int heightRecursive(Node<T> node) {
-        if (node == null) return -1;
+    /**
+     * Posição (a partir de 0) do valor na ordem crescente, ou -1 se não existir.
+     */
+    public int rank(T value) {
+        return contains(value) ? countLessThan(value) : -1;
+    }
 
-        return 1 + Math.max(
-                heightRecursive(node.left),
-                heightRecursive(node.right)
-        );
+    /**
+     * Retorna o k-ésimo menor valor (k a partir de 0), em O(altura).
+     */
+    public T select(int k) {
+        if (k < 0 || k >= size())
+            throw new IndexOutOfBoundsException("k = " + k + ", tamanho = " + size());
+
+        Node<T> node = root;
+        while (true) {
+            int esquerda = sizeOf(node.left);
+            int aqui = countOf(node);
+            if (k < esquerda) {
+                node = node.left;
+            } else if (k < esquerda + aqui) {
+                return node.value;
+            } else {
+                k -= esquerda + aqui;
+                node = node.right;
+            }
+        }
     }
 
 
@@ -206,16 +1214,41 @@ public class BinaryTree<T extends Comparable<T>> {
      * Profundidade (nível) de um valor na árvore.
      */
     public int depth(T value) {
-        return depthRecursive(root, value, 0);
+        TreeMetrics m = metrics;
+        long inicio = m == null ? 0 : System.nanoTime();
+
+        int nivel = descend(value);
+        if (m != null) recordLookup(m, nivel, inicio);
+        return nivel >= 0 ? nivel : -1; // -1 = não encontrado
     }
 
-    private int depthRecursive(Node<T> node, T value, int level) {
-        if (node == null) return -1;
-        if (node.value.equals(value)) return level;
+    /**
+     * Desce procurando o valor. Retorna o nível onde foi encontrado ou,
+     * se não existe, -1 - (quantidade de nós visitados).
+     * No modo SPLAY o nó encontrado (ou o último visitado) sobe até a raiz.
+     */
+    private int descend(T value) {
+        if (balancing == Balancing.SPLAY) return splayTo(value);
+
+        int level = 0;
+        long key = keyOf(value);
+        Node<T> node = root;
+        while (node != null) {
+            int cmp = compare(value, key, node);
+            if (cmp == 0) return countOf(node) > 0 ? level : liveLevel(node, value, key, level);
+
+            node = (cmp < 0) ? node.left : node.right;
+            level++;
+        }
+        return -1 - level;
+    }
 
-        return (value.compareTo(node.value) < 0)
-                ? depthRecursive(node.left, value, level + 1)
-                : depthRecursive(node.right, value, level + 1);
+    /**
+     * Uma comparação por nível visitado (o nível do valor conta também).
+     */
+    private static void recordLookup(TreeMetrics m, int resultado, long inicio) {
+        if (resultado >= 0) m.recordLookup(resultado, resultado + 1, System.nanoTime() - inicio);
+        else m.recordLookup(-1, -1 - resultado, System.nanoTime() - inicio);
     }
 
 
@@ -224,29 +1257,72 @@ public class BinaryTree<T extends Comparable<T>> {
     // ============================================================
     public List<T> pathTo(T value) {
         List<T> path = new ArrayList<>();
-        if (pathRecursive(root, value, path)) return path;
-        return new ArrayList<>(); // vazio se não encontrou
+        pathTo(value, path);
+        return path;
     }
 
-    private boolean pathRecursive(Node<T> node, T value, List<T> path) {
-        if (node == null) return false;
-
-        path.add(node.value); // adiciona atual ao caminho
+    /**
+     * Adiciona ao final de {@code destino} o caminho da raiz até o valor.
+     * Se o valor não existir, {@code destino} volta ao tamanho original e
+     * retorna false. Reusando a mesma lista, não há alocação por consulta.
+     */
+    public boolean pathTo(T value, List<T> destino) {
+        boolean achou = appendPath(root, value, destino);
+        if (balancing == Balancing.SPLAY) splayTo(value);
+        return achou;
+    }
 
-        if (node.value.equals(value)) return true;
+    /**
+     * Entrega ao visitante cada valor do caminho da raiz até o valor,
+     * sem montar lista. Retorna false (sem visitar nada) se não existir.
+     */
+    public boolean visitPath(T value, Consumer<? super T> visitante) {
+        if (find(value) == null) {
+            if (balancing == Balancing.SPLAY) splayTo(value);
+            return false;
+        }
 
-        // tenta esquerda ou direita
-        if (value.compareTo(node.value) < 0) {
-            if (pathRecursive(node.left, value, path)) return true;
-        } else {
-            if (pathRecursive(node.right, value, path)) return true;
+        long key = keyOf(value);
+        Node<T> node = root;
+        while (true) {
+            visitante.accept(node.value);
+            int cmp = compare(value, key, node);
+            if (cmp == 0) break;
+            node = (cmp < 0) ? node.left : node.right;
         }
+        if (countOf(node) == 0) copiaViva(node, value, key, visitante); // lápide: a cópia viva está abaixo
+        if (balancing == Balancing.SPLAY) splayTo(value);
+        return true;
+    }
 
-        // backtrack
-        path.remove(path.size() - 1);
+    /**
+     * Desce de {@code node} até o valor adicionando cada nó visitado;
+     * em caso de erro desfaz o que adicionou.
+     */
+    private boolean appendPath(Node<T> node, T value, List<T> destino) {
+        int inicio = destino.size();
+        long key = keyOf(value);
+        while (node != null) {
+            destino.add(node.value); // adiciona atual ao caminho
+
+            int cmp = compare(value, key, node);
+            if (cmp == 0) {
+                if (countOf(node) > 0 || copiaViva(node, value, key, destino::add) != null) return true;
+                break; // só lápides desse valor
+            }
+
+            // segue pela esquerda ou direita
+            node = (cmp < 0) ? node.left : node.right;
+        }
+        truncate(destino, inicio); // não encontrou
         return false;
     }
 
+    private static void truncate(List<?> lista, int tamanho) {
+        for (int i = lista.size() - 1; i >= tamanho; i--)
+            lista.remove(i);
+    }
+
 
     // ============================================================
     //                CAMINHO ENTRE DOIS NÓS
@@ -255,60 +1331,377 @@ public class BinaryTree<T extends Comparable<T>> {
      * Retorna o caminho completo entre dois valores.
      */
     public List<T> pathBetween(T a, T b) {
-        List<T> pa = pathTo(a);
-        List<T> pb = pathTo(b);
+        List<T> result = new ArrayList<>();
+        pathBetween(a, b, result);
+        return result;
+    }
 
-        if (pa.isEmpty() || pb.isEmpty()) return new ArrayList<>();
+    /**
+     * Adiciona ao final de {@code destino} o caminho de A até B.
+     *
+     * Uma descida até o ponto onde os dois se separam (o LCA) e, a partir
+     * dele, uma descida até A e outra até B. O trecho LCA → A é invertido
+     * no próprio destino para ficar A → LCA. Se algum valor não existir,
+     * {@code destino} volta ao tamanho original e retorna false.
+     */
+    public boolean pathBetween(T a, T b, List<T> destino) {
+        Node<T> lca = lcaNode(a, b);
+        if (lca == null) return false;
+
+        int inicio = destino.size();
+
+        // LCA → A, depois invertido para A → LCA
+        if (!appendPath(lca, a, destino)) return false;
+        for (int i = inicio, j = destino.size() - 1; i < j; i++, j--)
+            destino.set(i, destino.set(j, destino.get(i)));
+
+        // LCA → B, sem repetir o LCA
+        int cmp = compare(b, keyOf(b), lca);
+        boolean achou = cmp != 0
+                ? appendPath(cmp < 0 ? lca.left : lca.right, b, destino)
+                : countOf(lca) > 0 || copiaViva(lca, b, keyOf(b), destino::add) != null;
+        if (!achou) {
+            truncate(destino, inicio);
+            return false;
+        }
+        return true;
+    }
 
-        int i = 0;
 
-        // procura onde os caminhos começam a divergir
-        while (i < pa.size() && i < pb.size() && pa.get(i).equals(pb.get(i))) {
-            i++;
-        }
+    // ============================================================
+    //                LCA (Ancestral Comum Mais Próximo)
+    // ============================================================
+    public T lowestCommonAncestor(T a, T b) {
+        Node<T> lca = lcaNode(a, b);
+        return (lca != null ? lca.value : null);
+    }
 
-        int lcaIndex = i - 1; // índice do LCA (último igual)
+    private Node<T> lcaNode(T a, T b) {
+        long ka = keyOf(a), kb = keyOf(b);
+        Node<T> node = root;
+        while (node != null) {
+            int ca = compare(a, ka, node);
+            int cb = compare(b, kb, node);
 
-        List<T> result = new ArrayList<>();
+            if (ca < 0 && cb < 0) node = node.left;       // ambos estão à esquerda
+            else if (ca > 0 && cb > 0) node = node.right; // ambos à direita
+            else return node;                              // lados diferentes → achou LCA
+        }
+        return null;
+    }
 
-        // sobe de A até o LCA
-        for (int j = pa.size() - 1; j > lcaIndex; j--)
-            result.add(pa.get(j));
 
-        // adiciona o LCA
-        result.add(pa.get(lcaIndex));
+    // ============================================================
+    //               JUNÇÃO E DIVISÃO (join / split)
+    // ============================================================
+    /**
+     * Junta duas árvores e um valor entre elas: todos os valores de
+     * {@code menores} precisam ser menores que {@code value} e os de
+     * {@code maiores}, maiores (sem o modo multiset, iguais também valem).
+     * Em AVL custa O(|altura(menores) - altura(maiores)| + 1): desce pela
+     * borda da árvore mais alta até a altura da outra e pendura ali um nó
+     * novo, rebalanceando só esse caminho.
+     *
+     * As duas árvores precisam ter a mesma configuração (ver
+     * checkCompatible), senão IllegalArgumentException. Elas ficam vazias
+     * (seus nós passam para a árvore devolvida).
+     */
+    public static <T extends Comparable<T>> BinaryTree<T> join(BinaryTree<T> menores, T value,
+                                                               BinaryTree<T> maiores) {
+        checkCompatible(menores, maiores);
+        menores.compact();
+        maiores.compact();
+        Node<T> k = menores.newNode(value);
+        int minimo = menores.multiset ? 1 : 0; // multiset: um igual teria de virar contagem
+        if (menores.root != null && compare(value, k.key, menores.extremo(true)) < minimo
+                || maiores.root != null && compare(value, k.key, maiores.extremo(false)) > -minimo)
+            throw new IllegalArgumentException("join exige menores < value < maiores");
+
+        BinaryTree<T> resultado = menores.emptyCopy();
+        resultado.root = menores.juntar(menores.root, k, maiores.root);
+        menores.root = maiores.root = null;
+        return resultado;
+    }
 
-        // desce do LCA até B
-        for (int j = lcaIndex + 1; j < pb.size(); j++)
-            result.add(pb.get(j));
+    /**
+     * Divide a árvore no valor: esta fica com os valores menores e a
+     * árvore devolvida (mesma configuração), com os maiores ou iguais.
+     * Uma descida e, na volta, uma junção por nível: O(log n) em AVL
+     * (as junções de cada lado somam diferenças de altura que se cancelam).
+     */
+    public BinaryTree<T> split(T value) {
+        compact(); // as lápides não teriam como ser contadas em cada lado
+        Partes<T> partes = dividir(root, value);
+        BinaryTree<T> direita = emptyCopy();
+        direita.root = partes.igual == null ? partes.maiores : juntar(null, partes.igual, partes.maiores);
+        root = partes.menores;
+        return direita;
+    }
 
-        return result;
+    /**
+     * Mantém nesta árvore os valores das duas; {@code outra} fica vazia.
+     * No modo multiset cada valor fica com a maior das duas contagens.
+     * Valores iguais nas duas ficam com o objeto desta árvore.
+     *
+     * Com as duas árvores AVL usa o algoritmo baseado em join: divide a
+     * maior pela raiz da menor, resolve as duas metades (em paralelo, via
+     * fork/join, acima de TreeTasks.LIMIAR valores) e junta o resultado
+     * com a raiz. Custa O(m log(n/m + 1)), m a menor das duas:
+     * juntar 1 milhão de valores a 50 milhões é bem menos que 1 milhão de
+     * inserts. Nos outros modos as duas são intercaladas e a árvore é
+     * reconstruída balanceada, em O(n + m).
+     *
+     * Sem o modo multiset, as operações de conjunto supõem que cada árvore
+     * não tem valores repetidos. As duas árvores precisam ter a mesma
+     * configuração (ver checkCompatible), senão IllegalArgumentException.
+     */
+    public void union(BinaryTree<T> outra) {
+        combine(outra, TreeTasks.Operacao.UNIAO);
     }
 
+    /**
+     * Mantém só os valores que também estão em {@code outra} (no modo
+     * multiset, com a menor das contagens); {@code outra} fica vazia.
+     * Mesmo algoritmo e custo de union.
+     */
+    public void intersection(BinaryTree<T> outra) {
+        combine(outra, TreeTasks.Operacao.INTERSECAO);
+    }
 
-    // ============================================================
-    //                LCA (Ancestral Comum Mais Próximo)
-    // ============================================================
-    public T lowestCommonAncestor(T a, T b) {
-        Node<T> lca = lcaRecursive(root, a, b);
-        return (lca != null ? lca.value : null);
+    /**
+     * Tira desta árvore os valores que estão em {@code outra} (no modo
+     * multiset, subtrai as contagens); {@code outra} fica vazia.
+     * Mesmo algoritmo e custo de union.
+     */
+    public void difference(BinaryTree<T> outra) {
+        combine(outra, TreeTasks.Operacao.DIFERENCA);
     }
 
-    private Node<T> lcaRecursive(Node<T> node, T a, T b) {
-        if (node == null) return null;
+    private void combine(BinaryTree<T> outra, TreeTasks.Operacao op) {
+        if (outra == this) { // a ∪ a = a ∩ a = a; a - a = vazia
+            if (op == TreeTasks.Operacao.DIFERENCA) {
+                root = null;
+                mortos = 0; // as lápides saíram junto
+            }
+            return;
+        }
+        checkCompatible(this, outra);
+        compact();
+        outra.compact();
+
+        if (balancing == Balancing.AVL) {
+            // a recursão percorre a árvore menor e divide a maior
+            if (outra.size() < size()) root = TreeTasks.combine(this, outra.root, root, op, true);
+            else root = TreeTasks.combine(this, root, outra.root, op, false);
+        } else
+            root = build(mergeRuns(outra, op), false);
+        outra.root = null;
+    }
 
-        // ambos estão à esquerda
-        if (a.compareTo(node.value) < 0 && b.compareTo(node.value) < 0)
-            return lcaRecursive(node.left, a, b);
+    /**
+     * join e as operações de conjunto misturam os nós das duas árvores,
+     * então elas precisam ordenar igual e ter o mesmo modo: mesmo
+     * balanceamento, multiset e remoção lazy, e a mesma instância de
+     * prefixo (duas funções diferentes podem ordenar de jeitos diferentes,
+     * e não há como compará-las; use uma única instância, ex.: uma
+     * constante, ao criar árvores que serão combinadas).
+     */
+    private static void checkCompatible(BinaryTree<?> a, BinaryTree<?> b) {
+        if (a.balancing != b.balancing || a.multiset != b.multiset || a.lazy != b.lazy || a.prefixo != b.prefixo)
+            throw new IllegalArgumentException(
+                    "árvores com configurações diferentes (balanceamento/multiset/remoção lazy/prefixo)");
+    }
 
-        // ambos à direita
-        if (a.compareTo(node.value) > 0 && b.compareTo(node.value) > 0)
-            return lcaRecursive(node.right, a, b);
+    private BinaryTree<T> emptyCopy() {
+        BinaryTree<T> copia = new BinaryTree<T>(balancing, prefixo, multiset);
+        copia.lazy = lazy;
+        copia.limiteMortos = limiteMortos;
+        return copia;
+    }
 
-        // estão em lados diferentes → achou LCA
+    /**
+     * Nó do menor (ou do maior) valor; a árvore não pode estar vazia.
+     */
+    private Node<T> extremo(boolean maior) {
+        Node<T> node = root;
+        while ((maior ? node.right : node.left) != null)
+            node = maior ? node.right : node.left;
         return node;
     }
 
+    /**
+     * Intercala os valores (com repetições) desta árvore e de outra,
+     * seguindo a operação por sequência de valores iguais: ca ocorrências
+     * aqui e cb lá viram max(ca, cb), min(ca, cb) ou ca - cb.
+     * Usado fora do AVL, onde não há limite de altura para o join.
+     */
+    @SuppressWarnings("unchecked")
+    private T[] mergeRuns(BinaryTree<T> outra, TreeTasks.Operacao op) {
+        T[] a = (T[]) new Comparable[size()];
+        T[] b = (T[]) new Comparable[outra.size()];
+        int na = 0, nb = 0;
+        for (T value : this) a[na++] = value;
+        for (T value : outra) b[nb++] = value;
+
+        T[] todos = (T[]) new Comparable[na + nb];
+        int i = 0, j = 0, k = 0;
+        while (i < na || j < nb) {
+            int cmp = i == na ? 1 : j == nb ? -1 : a[i].compareTo(b[j]);
+            int ca = 0, cb = 0;
+            if (cmp <= 0) while (i + ca < na && a[i + ca].compareTo(a[i]) == 0) ca++;
+            if (cmp >= 0) while (j + cb < nb && b[j + cb].compareTo(b[j]) == 0) cb++;
+
+            int aqui = switch (op) { // ocorrências que ficam desta árvore
+                case UNIAO -> ca;
+                case INTERSECAO -> Math.min(ca, cb);
+                case DIFERENCA -> Math.max(ca - cb, 0);
+            };
+            int dela = op == TreeTasks.Operacao.UNIAO ? Math.max(cb - ca, 0) : 0;
+            System.arraycopy(a, i, todos, k, aqui);
+            System.arraycopy(b, j, todos, k + aqui, dela);
+            k += aqui + dela;
+            i += ca;
+            j += cb;
+        }
+        return Arrays.copyOf(todos, k);
+    }
+
+    /**
+     * Resultado de dividir: os nós menores que o valor, o primeiro nó igual
+     * a ele (solto, sem filhos; null se não há) e os maiores, que incluem
+     * os outros iguais.
+     */
+    static final class Partes<T> {
+        Node<T> menores, igual, maiores;
+    }
+
+    /**
+     * Divide a subárvore no valor. Desce uma vez guardando o caminho e, na
+     * volta, cada ancestral vira a chave de uma junção: se a descida foi
+     * para a direita, ele e a sua esquerda vão para os menores; senão, ele
+     * e a sua direita vão para os maiores. Iterativo (a subárvore pode ser
+     * alta fora do AVL) e sem estado compartilhado, para as tarefas
+     * paralelas de TreeTasks.combine.
+     *
+     * Fora do multiset pode haver vários nós iguais ao valor, e depois de
+     * rotações (ou de build) eles ficam dos dois lados de um nó igual. Por
+     * isso a descida não para no primeiro igual: segue pela esquerda até o
+     * fim, como a busca do primeiro valor >= value, e todos os iguais vão
+     * para os maiores. O último igual do caminho é o primeiro deles na
+     * ordem; é ele que sai solto em {@code igual}.
+     */
+    Partes<T> dividir(Node<T> raiz, T value) {
+        @SuppressWarnings("unchecked")
+        Node<T>[] pilha = (Node<T>[]) new Node[heightOf(raiz) + 1];
+        boolean[] direita = new boolean[pilha.length];
+        int topo = 0, posIgual = -1;
+        long key = keyOf(value);
+        Node<T> node = raiz;
+        while (node != null) {
+            int cmp = compare(value, key, node);
+            if (cmp == 0) posIgual = topo;
+            pilha[topo] = node;
+            direita[topo++] = cmp > 0;
+            node = (cmp <= 0) ? node.left : node.right;
+        }
+
+        Partes<T> partes = new Partes<>();
+        Node<T> menores = null, maiores = null;
+        for (int i = topo - 1; i >= 0; i--) {
+            Node<T> a = pilha[i];
+            if (direita[i]) {
+                menores = juntar(a.left, a, menores);
+            } else if (i == posIgual) { // sai solto; a direita dele fica nos maiores
+                maiores = juntar(maiores, a.right);
+                a.left = a.right = null;
+                update(a);
+                partes.igual = a;
+            } else {
+                maiores = juntar(maiores, a, a.right);
+            }
+        }
+        partes.menores = menores;
+        partes.maiores = maiores;
+        return partes;
+    }
+
+    /**
+     * Junta l, o nó k e r (l < k < r) em uma subárvore. Fora do AVL o nó
+     * só recebe os dois filhos. Em AVL, se as alturas diferem mais de 1,
+     * desce pela borda da mais alta (direita de l ou esquerda de r) até
+     * uma subárvore com altura no máximo 1 acima da outra e rebalanceia na
+     * volta. A recursão tem a profundidade dessa descida, O(log n).
+     */
+    Node<T> juntar(Node<T> l, Node<T> k, Node<T> r) {
+        if (balancing != Balancing.AVL) {
+            k.left = l;
+            k.right = r;
+            update(k);
+            return k;
+        }
+        if (heightOf(l) > heightOf(r) + 1) {
+            l.right = juntar(l.right, k, r);
+            return rebalance(l);
+        }
+        if (heightOf(r) > heightOf(l) + 1) {
+            r.left = juntar(l, k, r.left);
+            return rebalance(r);
+        }
+        k.left = l;
+        k.right = r;
+        update(k);
+        return k;
+    }
+
+    /**
+     * Junta duas subárvores (l < r) sem nó do meio: o maior nó de l é
+     * retirado e usado como chave.
+     */
+    Node<T> juntar(Node<T> l, Node<T> r) {
+        if (l == null) return r;
+        if (r == null) return l;
+
+        @SuppressWarnings("unchecked")
+        Node<T>[] borda = (Node<T>[]) new Node[heightOf(l) + 1];
+        int topo = 0;
+        Node<T> maior = l;
+        while (maior.right != null) {
+            borda[topo++] = maior;
+            maior = maior.right;
+        }
+        Node<T> resto = maior.left;
+        for (int i = topo - 1; i >= 0; i--) {
+            borda[i].right = resto;
+            resto = rebalance(borda[i]);
+        }
+        return juntar(resto, maior, r);
+    }
+
+
+    // ============================================================
+    //                     CONGELAMENTO
+    // ============================================================
+    /**
+     * Cópia somente leitura otimizada para consultas (B-tree estática em
+     * vetores contíguos, ver FrozenBinaryTree), usando o prefixo desta
+     * árvore, se houver.
+     * Alterações posteriores nesta árvore não aparecem na cópia.
+     */
+    public FrozenBinaryTree<T> freeze() {
+        return freeze(prefixo);
+    }
+
+    /**
+     * Como freeze(), mas com o prefixo informado (ex.: para inteiros,
+     * {@code v -> v ^ Long.MIN_VALUE}, que inverte o bit de sinal para a
+     * ordem sem sinal coincidir com a dos números). Útil quando a árvore foi criada
+     * sem prefixo: é ele que permite à busca comparar apenas primitivos.
+     * Valem as mesmas regras de BinaryTree(Balancing, ToLongFunction).
+     */
+    public FrozenBinaryTree<T> freeze(ToLongFunction<? super T> prefixo) {
+        return new FrozenBinaryTree<>(this, prefixo);
+    }
+
 
     // ============================================================
     //                      PRINT ASCII
@@ -328,4 +1721,12 @@ public class BinaryTree<T extends Comparable<T>> {
     public Node<T> getRoot() {
         return root;
     }
+
+    /**
+     * Substitui a estrutura inteira (usado ao carregar um snapshot).
+     * Os nós já devem estar com altura e tamanho corretos.
+     */
+    void replaceRoot(Node<T> novaRaiz) {
+        root = novaRaiz;
+    }
 }
@@ -0,0 +1,225 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * BinaryTree segura para uso por várias threads.
+ *
+ * - Leituras pontuais (contains, depth, pathTo, pathBetween, LCA, altura,
+ *   tamanho) são otimistas: percorrem a árvore sem travar nada e, no fim,
+ *   validam que nenhuma escrita aconteceu no meio (StampedLock.validate).
+ *   Só se a validação falhar a leitura é refeita com a trava de leitura.
+ *   Leitores não escrevem em nenhum estado compartilhado, então escalam
+ *   com o número de threads.
+ * - Percursos (toList, forEach, stream) copiam a árvore inteira com a
+ *   trava de leitura: uma cópia O(n) otimista quase sempre seria
+ *   invalidada por alguma escrita no meio e refeita travada, desperdiçando
+ *   a primeira passada. Enquanto copiam, as escritas esperam.
+ * - Escritas (insert, remove, insertAll) usam uma única trava exclusiva.
+ *
+ * Internamente a árvore é sempre AVL: a altura limitada garante que uma
+ * leitura otimista que enxergue um estado intermediário de rotação seja
+ * detectada (limite de passos) em vez de ficar presa em um ciclo.
+ */
+public class ConcurrentBinaryTree<T extends Comparable<T>> {
+
+    // altura máxima de uma AVL com até 2^31 nós é ~45; passar disso
+    // significa que a leitura otimista enxergou um estado inconsistente
+    private static final int LIMITE_PASSOS = 64;
+
+    private final BinaryTree<T> tree = new BinaryTree<>(BinaryTree.Balancing.AVL);
+    private final StampedLock lock = new StampedLock();
+
+
+    // ============================================================
+    //                          ESCRITAS
+    // ============================================================
+    public void insert(T value) {
+        long stamp = lock.writeLock();
+        try {
+            tree.insert(value);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void insertAll(Collection<? extends T> values) {
+        long stamp = lock.writeLock();
+        try {
+            tree.insertAll(values);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void remove(T value) {
+        long stamp = lock.writeLock();
+        try {
+            tree.remove(value);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+
+    // ============================================================
+    //                     LEITURA OTIMISTA
+    // ============================================================
+    /**
+     * Executa a leitura sem travar e valida o resultado; se uma escrita
+     * ocorreu no meio (ou a leitura viu um estado inconsistente e falhou),
+     * repete com a trava de leitura.
+     */
+    private <R> R read(Function<BinaryTree.Node<T>, R> leitura) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                R resultado = leitura.apply(tree.getRoot());
+                if (lock.validate(stamp)) return resultado;
+            } catch (RuntimeException e) {
+                // estado intermediário de uma escrita: cai para a leitura travada
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            return leitura.apply(tree.getRoot());
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Executa a leitura direto com a trava de leitura (para percursos longos).
+     */
+    private <R> R readLocked(Function<BinaryTree.Node<T>, R> leitura) {
+        long stamp = lock.readLock();
+        try {
+            return leitura.apply(tree.getRoot());
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static void checkSteps(int passos) {
+        if (passos > LIMITE_PASSOS)
+            throw new IllegalStateException("leitura inconsistente");
+    }
+
+    public boolean contains(T value) {
+        return read(root -> depthFrom(root, value) >= 0);
+    }
+
+    public int depth(T value) {
+        return read(root -> depthFrom(root, value));
+    }
+
+    public List<T> pathTo(T value) {
+        return read(root -> pathFrom(root, value));
+    }
+
+    /**
+     * Caminho entre dois valores, calculado sobre uma mesma versão da árvore.
+     */
+    public List<T> pathBetween(T a, T b) {
+        return read(root -> {
+            List<T> result = new ArrayList<>();
+            BinaryTree.Node<T> lca = lcaFrom(root, a, b);
+            if (lca == null) return result;
+
+            List<T> ateA = pathFrom(lca, a);
+            List<T> ateB = pathFrom(lca, b);
+            if (ateA.isEmpty() || ateB.isEmpty()) return result;
+
+            for (int j = ateA.size() - 1; j >= 0; j--) result.add(ateA.get(j)); // A → LCA
+            for (int j = 1; j < ateB.size(); j++) result.add(ateB.get(j));      // LCA → B
+            return result;
+        });
+    }
+
+    public T lowestCommonAncestor(T a, T b) {
+        return read(root -> {
+            BinaryTree.Node<T> lca = lcaFrom(root, a, b);
+            return lca == null ? null : lca.value;
+        });
+    }
+
+    public int height() {
+        return read(BinaryTree::heightOf);
+    }
+
+    public int size() {
+        return read(BinaryTree::sizeOf);
+    }
+
+    /**
+     * Cópia consistente dos valores na ordem pedida. Copia com a trava de
+     * leitura, O(n): as escritas ficam bloqueadas durante a cópia (não
+     * durante o uso da lista devolvida).
+     */
+    public List<T> toList(BinaryTree.Traversal ordem) {
+        return readLocked(root -> {
+            List<T> valores = new ArrayList<>(BinaryTree.sizeOf(root));
+            new TreeSpliterator<>(root, ordem).forEachRemaining(valores::add);
+            return valores;
+        });
+    }
+
+    /**
+     * Visita os valores em ordem crescente. A visita ocorre sobre uma cópia
+     * consistente (ver toList), então o consumidor nunca segura a árvore.
+     */
+    public void forEach(Consumer<? super T> acao) {
+        toList(BinaryTree.Traversal.IN_ORDER).forEach(acao);
+    }
+
+    public Stream<T> stream() {
+        return toList(BinaryTree.Traversal.IN_ORDER).stream();
+    }
+
+
+    // ============================================================
+    //               PERCURSOS LIMITADOS (sem recursão)
+    // ============================================================
+    private static <T extends Comparable<T>> int depthFrom(BinaryTree.Node<T> node, T value) {
+        int level = 0;
+        while (node != null) {
+            checkSteps(level);
+            int cmp = value.compareTo(node.value);
+            if (cmp == 0) return level;
+            node = (cmp < 0) ? node.left : node.right;
+            level++;
+        }
+        return -1;
+    }
+
+    private static <T extends Comparable<T>> List<T> pathFrom(BinaryTree.Node<T> node, T value) {
+        List<T> path = new ArrayList<>();
+        while (node != null) {
+            checkSteps(path.size());
+            path.add(node.value);
+            int cmp = value.compareTo(node.value);
+            if (cmp == 0) return path;
+            node = (cmp < 0) ? node.left : node.right;
+        }
+        path.clear();
+        return path;
+    }
+
+    private static <T extends Comparable<T>> BinaryTree.Node<T> lcaFrom(BinaryTree.Node<T> node, T a, T b) {
+        int passos = 0;
+        while (node != null) {
+            checkSteps(passos++);
+            int ca = a.compareTo(node.value);
+            int cb = b.compareTo(node.value);
+            if (ca < 0 && cb < 0) node = node.left;
+            else if (ca > 0 && cb > 0) node = node.right;
+            else return node;
+        }
+        return null;
+    }
+}
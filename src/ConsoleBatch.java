@@ -0,0 +1,247 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Modo não interativo do ConsoleUI: executa um roteiro de comandos lido de
+ * um arquivo ou da entrada padrão, sem menu e sem prompts.
+ *
+ * Uma linha por comando (linhas vazias e começadas por # são ignoradas):
+ *
+ *   nome,idade                 insere (linha CSV, sem comando)
+ *   insert nome,idade          insere
+ *   remove nome,idade          remove
+ *   contains nome,idade        escreve true/false
+ *   depth nome,idade           escreve a profundidade (-1 se não existe)
+ *   path nome,idade            escreve o caminho da raiz até a pessoa
+ *   between nome,idade;nome,idade   escreve o caminho entre as duas
+ *   height | size | print      altura, tamanho, desenho ASCII
+ *   save arquivo | load arquivo     snapshot binário (TreeSnapshot)
+ *
+ * A idade é o que vem depois da última vírgula, então o nome pode ter
+ * vírgulas e espaços. Se o nome começar com uma das palavras de comando
+ * seguida de espaço, use a forma "insert nome,idade".
+ *
+ * Para aguentar milhões de linhas:
+ * - a leitura é um BufferedReader e a análise é feita à mão (sem regex,
+ *   sem split e sem exceção para número inválido)
+ * - inserções seguidas são acumuladas e aplicadas de uma vez com
+ *   insertAll (ordenação única e reconstrução balanceada); o lote é
+ *   aplicado antes de qualquer outro comando, então a ordem não muda
+ * - a saída é acumulada em um Writer com buffer e descarregada no fim
+ * Linhas com erro são informadas em System.err e o roteiro continua.
+ */
+public class ConsoleBatch {
+
+    private BinaryTree<Person> tree;
+    private final List<Person> pendentes = new ArrayList<>();
+    private final Writer out;
+    private long linha; // número da linha atual, para mensagens de erro
+    private int erros;
+
+    public ConsoleBatch(BinaryTree<Person> tree, Writer out) {
+        this.tree = tree;
+        this.out = out;
+    }
+
+    /**
+     * Árvore atual (pode ter sido trocada por um comando load).
+     */
+    public BinaryTree<Person> getTree() {
+        return tree;
+    }
+
+    /**
+     * Executa todas as linhas do leitor. Retorna a quantidade de linhas com erro.
+     */
+    public int run(BufferedReader in) throws IOException {
+        String texto;
+        while ((texto = in.readLine()) != null) {
+            linha++;
+            execute(texto);
+        }
+        flushInserts();
+        out.flush();
+        return erros;
+    }
+
+
+    // ============================================================
+    //                        COMANDOS
+    // ============================================================
+    private void execute(String texto) throws IOException {
+        int ini = skipSpaces(texto, 0);
+        int fim = trimEnd(texto, texto.length());
+        if (ini >= fim || texto.charAt(ini) == '#') return;
+
+        // primeira palavra: até o primeiro espaço
+        int espaco = ini;
+        while (espaco < fim && texto.charAt(espaco) != ' ') espaco++;
+        String comando = texto.substring(ini, espaco);
+        int arg = skipSpaces(texto, espaco);
+
+        switch (comando) {
+            case "insert" -> insert(texto, arg, fim);
+            case "remove" -> {
+                Person p = parsePerson(texto, arg, fim);
+                if (p != null) {
+                    flushInserts();
+                    tree.remove(p);
+                }
+            }
+            case "contains" -> {
+                Person p = parsePerson(texto, arg, fim);
+                if (p != null) {
+                    flushInserts();
+                    println(String.valueOf(tree.contains(p)));
+                }
+            }
+            case "depth" -> {
+                Person p = parsePerson(texto, arg, fim);
+                if (p != null) {
+                    flushInserts();
+                    println(Integer.toString(tree.depth(p)));
+                }
+            }
+            case "path" -> {
+                Person p = parsePerson(texto, arg, fim);
+                if (p != null) {
+                    flushInserts();
+                    println(tree.pathTo(p).toString());
+                }
+            }
+            case "between" -> between(texto, arg, fim);
+            case "height" -> {
+                flushInserts();
+                println(Integer.toString(tree.height()));
+            }
+            case "size" -> {
+                flushInserts();
+                println(Integer.toString(tree.size()));
+            }
+            case "print" -> {
+                flushInserts();
+                TreePrinter.render(tree.getRoot(), out, Integer.MAX_VALUE, 0, Long.MAX_VALUE);
+            }
+            case "save" -> {
+                flushInserts();
+                try {
+                    TreeSnapshot.write(tree, Path.of(texto.substring(arg, fim)), new PersonCodec());
+                } catch (IOException e) {
+                    error("erro ao salvar: " + e.getMessage());
+                }
+            }
+            case "load" -> {
+                flushInserts();
+                try {
+                    tree = TreeSnapshot.read(Path.of(texto.substring(arg, fim)), new PersonCodec(),
+                            tree.getBalancing(), tree.getPrefixo());
+                } catch (IOException e) {
+                    error("erro ao carregar: " + e.getMessage());
+                }
+            }
+            default -> insert(texto, ini, fim); // linha CSV: nome,idade
+        }
+    }
+
+    private void insert(String texto, int ini, int fim) {
+        Person p = parsePerson(texto, ini, fim);
+        if (p != null) pendentes.add(p);
+    }
+
+    /**
+     * between nome,idade;nome,idade
+     */
+    private void between(String texto, int ini, int fim) throws IOException {
+        int sep = texto.indexOf(';', ini);
+        if (sep < 0 || sep >= fim) {
+            error("esperado 'nome,idade;nome,idade'");
+            return;
+        }
+        Person a = parsePerson(texto, ini, trimEnd(texto, sep));
+        Person b = a == null ? null : parsePerson(texto, skipSpaces(texto, sep + 1), fim);
+        if (b == null) return;
+
+        flushInserts();
+        println(tree.pathBetween(a, b).toString());
+    }
+
+    /**
+     * Aplica o lote de inserções acumulado.
+     */
+    private void flushInserts() {
+        if (pendentes.isEmpty()) return;
+        tree.insertAll(pendentes);
+        pendentes.clear();
+    }
+
+
+    // ============================================================
+    //                  ANÁLISE (sem regex / split)
+    // ============================================================
+    /**
+     * Lê "nome,idade" de texto[ini, fim). A idade vem depois da última vírgula.
+     * Retorna null (e registra o erro) se a linha for inválida.
+     */
+    private Person parsePerson(String texto, int ini, int fim) {
+        int virgula = texto.lastIndexOf(',', fim - 1);
+        if (virgula < ini) {
+            error("esperado 'nome,idade'");
+            return null;
+        }
+
+        int fimNome = trimEnd(texto, virgula);
+        if (fimNome <= ini) {
+            error("nome vazio");
+            return null;
+        }
+
+        int idade = parseAge(texto, skipSpaces(texto, virgula + 1), fim);
+        if (idade < 0) {
+            error("idade inválida");
+            return null;
+        }
+        return new Person(texto.substring(ini, fimNome), idade);
+    }
+
+    /**
+     * Inteiro não negativo em texto[ini, fim), ou -1 se não for um número válido.
+     */
+    private static int parseAge(String texto, int ini, int fim) {
+        if (ini >= fim || fim - ini > 9) return -1; // até 9 dígitos: não estoura int
+        int valor = 0;
+        for (int i = ini; i < fim; i++) {
+            char c = texto.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            valor = valor * 10 + (c - '0');
+        }
+        return valor;
+    }
+
+    private static int skipSpaces(String texto, int i) {
+        while (i < texto.length() && texto.charAt(i) <= ' ') i++;
+        return i;
+    }
+
+    private static int trimEnd(String texto, int fim) {
+        while (fim > 0 && texto.charAt(fim - 1) <= ' ') fim--;
+        return fim;
+    }
+
+
+    // ============================================================
+    //                          SAÍDA
+    // ============================================================
+    private void println(String texto) throws IOException {
+        out.write(texto);
+        out.write('\n');
+    }
+
+    private void error(String mensagem) {
+        erros++;
+        System.err.println("linha " + linha + ": " + mensagem);
+    }
+}
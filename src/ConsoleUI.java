@@ -1,3 +1,12 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Scanner;
 
@@ -7,12 +16,44 @@ public class ConsoleUI {
     private static final Scanner scanner = new Scanner(System.in);
 
     // Árvore binária que armazena objetos Person
-    private static final BinaryTree<Person> tree = new BinaryTree<>();
+    // (não é final: pode ser substituída ao carregar um arquivo).
+    // Cada nó guarda o prefixo do nome, o que acelera as comparações.
+    private static BinaryTree<Person> tree = new BinaryTree<>(BinaryTree.Balancing.NONE, Person::sortPrefix);
 
-    public static void main(String[] args) {
+    /**
+     * Sem argumentos abre o menu interativo.
+     * Com "--batch [arquivo]" executa um roteiro de comandos (do arquivo ou
+     * da entrada padrão) sem menu; ver ConsoleBatch para o formato.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            executarLote(args.length > 1 ? args[1] : null);
+            return;
+        }
         iniciarMenu(); // Inicia o menu principal
     }
 
+    // -------------------- MODO LOTE --------------------
+
+    /**
+     * Executa o roteiro com leitura e escrita bufferizadas (64 KB).
+     * Termina com código 1 se alguma linha tiver erro.
+     */
+    private static void executarLote(String arquivo) throws IOException {
+        BufferedReader in = arquivo == null
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16)
+                : Files.newBufferedReader(Path.of(arquivo));
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+
+        int erros;
+        try (in) {
+            ConsoleBatch lote = new ConsoleBatch(tree, out);
+            erros = lote.run(in);
+            tree = lote.getTree();
+        }
+        if (erros > 0) System.exit(1);
+    }
+
     // -------------------- MENU PRINCIPAL --------------------
 
     /**
@@ -30,6 +71,8 @@ public class ConsoleUI {
             System.out.println("7 - Profundidade de um nó");
             System.out.println("8 - Caminho até um nó");
             System.out.println("9 - Caminho entre dois nós");
+            System.out.println("10 - Salvar árvore em arquivo");
+            System.out.println("11 - Carregar árvore de arquivo");
             System.out.println("0 - Sair");
             System.out.print("Escolha: ");
 
@@ -46,6 +89,8 @@ public class ConsoleUI {
                 case 7 -> profundidade();
                 case 8 -> caminhoAte();
                 case 9 -> caminhoEntre();
+                case 10 -> salvar();
+                case 11 -> carregar();
                 case 0 -> {
                     System.out.println("Encerrando...");
                     return; // Sai do programa
@@ -160,6 +205,36 @@ public class ConsoleUI {
         System.out.println(tree.pathBetween(new Person(n1, i1), new Person(n2, i2)));
     }
 
+    /**
+     * Grava a árvore atual em um arquivo binário (snapshot).
+     */
+    private static void salvar() {
+        System.out.print("Arquivo: ");
+        String arquivo = scanner.nextLine();
+
+        try {
+            TreeSnapshot.write(tree, Path.of(arquivo), new PersonCodec());
+            System.out.println("Árvore salva (" + tree.size() + " pessoas).");
+        } catch (IOException e) {
+            System.out.println("Erro ao salvar: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Substitui a árvore atual pela gravada no arquivo.
+     */
+    private static void carregar() {
+        System.out.print("Arquivo: ");
+        String arquivo = scanner.nextLine();
+
+        try {
+            tree = TreeSnapshot.read(Path.of(arquivo), new PersonCodec(), tree.getBalancing(), tree.getPrefixo());
+            System.out.println("Árvore carregada (" + tree.size() + " pessoas).");
+        } catch (IOException e) {
+            System.out.println("Erro ao carregar: " + e.getMessage());
+        }
+    }
+
     // -------------------- Leitura segura --------------------
 
     /**
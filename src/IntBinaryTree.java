@@ -0,0 +1,216 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Árvore Binária de Busca especializada para chaves int (ex.: idade, IDs).
+ *
+ * Em vez de um objeto Node por elemento, os nós vivem em vetores paralelos:
+ * - keys[i]   → chave do nó i
+ * - left[i], right[i], height[i] → estrutura (ver PrimitiveBinaryTree)
+ *
+ * Não há boxing nem alocação por nó; posições liberadas pelo remove vão
+ * para uma lista livre (encadeada pelo próprio vetor left) e são reusadas,
+ * e compact() reorganiza os nós em pré-ordem.
+ * Oferece as mesmas operações da BinaryTree, todas iterativas, nos modos
+ * NONE e AVL (SPLAY é rejeitado com IllegalArgumentException).
+ *
+ * LongBinaryTree é a mesma classe com chaves long; as duas compartilham a
+ * estrutura e o rebalanceamento em PrimitiveBinaryTree.
+ */
+public class IntBinaryTree extends PrimitiveBinaryTree {
+
+    private int[] keys;
+
+    public IntBinaryTree() {
+        this(BinaryTree.Balancing.NONE);
+    }
+
+    public IntBinaryTree(BinaryTree.Balancing balancing) {
+        this(balancing, 16);
+    }
+
+    /**
+     * @param capacidade quantidade de nós reservada de início
+     */
+    public IntBinaryTree(BinaryTree.Balancing balancing, int capacidade) {
+        super(balancing, capacidade);
+        keys = new int[Math.max(capacidade, 1)];
+    }
+
+    @Override
+    int capacity() {
+        return keys.length;
+    }
+
+    @Override
+    void growKeys(int capacidade) {
+        keys = Arrays.copyOf(keys, capacidade);
+    }
+
+    @Override
+    void copyKey(int de, int para) {
+        keys[para] = keys[de];
+    }
+
+    @Override
+    void relocateKeys(int[] novoIndice, int capacidade) {
+        int[] novas = new int[capacidade];
+        for (int old = 0; old < novoIndice.length; old++)
+            if (novoIndice[old] != NIL) novas[novoIndice[old]] = keys[old];
+        keys = novas;
+    }
+
+
+    // ============================================================
+    //                         INSERÇÃO
+    // ============================================================
+    public void insert(int key) {
+        int topo = 0;
+        int atual = root;
+        boolean esquerda = false;
+        while (atual != NIL) {
+            push(topo++, atual);
+            esquerda = key < keys[atual];
+            atual = esquerda ? left[atual] : right[atual];
+        }
+
+        int novo = allocate();
+        keys[novo] = key;
+        link(topo, novo, esquerda);
+    }
+
+
+    // ============================================================
+    //                         BUSCA
+    // ============================================================
+    public boolean contains(int key) {
+        int node = root;
+        while (node != NIL) {
+            int k = keys[node];
+            if (key == k) return true;
+            node = (key < k) ? left[node] : right[node];
+        }
+        return false;
+    }
+
+
+    // ============================================================
+    //                         REMOÇÃO
+    // ============================================================
+    /**
+     * Remove uma ocorrência da chave (caso exista), sem recursão.
+     */
+    public void remove(int key) {
+        int topo = 0;
+        int atual = root;
+        while (atual != NIL) {
+            int k = keys[atual];
+            if (key == k) break;
+            push(topo++, atual);
+            atual = (key < k) ? left[atual] : right[atual];
+        }
+        if (atual != NIL) unlink(topo, atual);
+    }
+
+
+    // ============================================================
+    //                       PROFUNDIDADE
+    // ============================================================
+    public int depth(int key) {
+        int level = 0;
+        int node = root;
+        while (node != NIL) {
+            int k = keys[node];
+            if (key == k) return level;
+            node = (key < k) ? left[node] : right[node];
+            level++;
+        }
+        return -1;
+    }
+
+
+    // ============================================================
+    //                 CAMINHOS E LCA
+    // ============================================================
+    /**
+     * Chaves da raiz até a chave procurada (vazio se não existir).
+     */
+    public int[] pathTo(int key) {
+        int len = descendFrom(root, key, 0);
+        if (len < 0) return new int[0];
+        int[] path = new int[len];
+        for (int i = 0; i < len; i++) path[i] = keys[caminho[i]];
+        return path;
+    }
+
+    /**
+     * Chaves do caminho de A até B, passando pelo ancestral comum
+     * (vazio se alguma das duas não existir), como BinaryTree.pathBetween.
+     */
+    public int[] pathBetween(int a, int b) {
+        int lca = lcaIndex(a, b);
+        if (lca == NIL) return new int[0];
+        int la = descendFrom(lca, a, 0);  // caminho[0, la): LCA → A
+        if (la < 0) return new int[0];
+        int lb = descendFrom(lca, b, la); // caminho[la, la + lb): LCA → B
+        if (lb < 0) return new int[0];
+
+        int[] path = new int[la + lb - 1];
+        for (int i = 0; i < la; i++) path[i] = keys[caminho[la - 1 - i]]; // A → LCA
+        for (int i = 1; i < lb; i++) path[la - 1 + i] = keys[caminho[la + i]]; // sem repetir o LCA
+        return path;
+    }
+
+    /**
+     * Ancestral comum mais próximo das duas chaves. Como em BinaryTree, as
+     * chaves não precisam existir: é o nó onde as duas descidas se separam.
+     * Quando esse nó não existe (árvore vazia, ou as duas descidas saem
+     * juntas por baixo de uma folha) BinaryTree devolve null; aqui, sem um
+     * valor para "nenhum" no tipo primitivo, lança NoSuchElementException.
+     */
+    public int lowestCommonAncestor(int a, int b) {
+        int lca = lcaIndex(a, b);
+        if (lca == NIL) throw new NoSuchElementException("sem ancestral comum");
+        return keys[lca];
+    }
+
+    private int lcaIndex(int a, int b) {
+        int node = root;
+        while (node != NIL) {
+            int k = keys[node];
+            if (a < k && b < k) node = left[node];
+            else if (a > k && b > k) node = right[node];
+            else return node;
+        }
+        return NIL;
+    }
+
+    /**
+     * Desce de {@code node} até a chave empilhando os nós visitados em
+     * caminho[base, ...). Retorna quantos foram empilhados (a chave é o
+     * último) ou -1 se ela não existe.
+     */
+    private int descendFrom(int node, int key, int base) {
+        int topo = base;
+        while (node != NIL) {
+            push(topo++, node);
+            int k = keys[node];
+            if (key == k) return topo - base;
+            node = (key < k) ? left[node] : right[node];
+        }
+        return -1;
+    }
+
+
+    // ============================================================
+    //                         PERCURSO
+    // ============================================================
+    /**
+     * Chaves em ordem crescente.
+     */
+    public int[] toArray() {
+        int[] saida = inOrderIndices();
+        for (int i = 0; i < saida.length; i++) saida[i] = keys[saida[i]]; // índice → chave, no mesmo vetor
+        return saida;
+    }
+}
@@ -0,0 +1,208 @@
+import java.util.Arrays;
+
+/**
+ * Índice somente leitura para consultas de LCA, profundidade e distância
+ * em O(1), montado a partir do estado atual de uma BinaryTree.
+ *
+ * Ideia: no percurso in-ordem, o LCA de dois nós está sempre entre eles e
+ * é o nó de menor profundidade desse trecho. Então basta guardar, em ordem:
+ * - values[i] → valor do i-ésimo nó
+ * - depth[i]  → profundidade desse nó
+ * e responder "mínimo em um intervalo" (RMQ) com uma sparse table
+ * (O(n log n) de memória, O(1) por consulta).
+ *
+ * Os nós são identificados pela posição in-ordem (id). Converter um valor
+ * em id é uma busca binária em um vetor contíguo (indexOf); as consultas
+ * em lote não alocam nada por consulta. Os métodos por id têm nomes
+ * próprios (depthAt, distanceBetweenIds), para que num LcaIndex<Integer>
+ * depth(5) e distance(1, 7) sejam sempre as consultas por valor.
+ *
+ * O índice é uma foto da árvore (que não é alterada): alterações feitas
+ * depois não aparecem. Com chaves repetidas, indexOf devolve qualquer uma
+ * das ocorrências. Com remoção lazy, as lápides também ganham uma posição,
+ * porque uma lápide pode ser o LCA de verdade (como em
+ * BinaryTree.lowestCommonAncestor, que responde com a árvore física); só
+ * indexOf e as consultas por valor as pulam.
+ */
+public class LcaIndex<T extends Comparable<T>> {
+
+    private final Object[] values;
+    private final int[] depth;
+    private final boolean[] morto; // lápides por id (null se a árvore não tinha nenhuma)
+    private final int[][] tabela; // tabela[k][i] = id de menor profundidade em [i, i + 2^k)
+
+    public LcaIndex(BinaryTree<T> tree) {
+        int n = tree.size() + tree.tombstones();
+        values = new Object[n];
+        depth = new int[n];
+        morto = tree.tombstones() > 0 ? new boolean[n] : null;
+
+        // in-ordem com pilha explícita, guardando a profundidade de cada nó
+        @SuppressWarnings("unchecked")
+        BinaryTree.Node<T>[] pilha = (BinaryTree.Node<T>[]) new BinaryTree.Node[tree.height() + 1];
+        int[] pilhaNivel = new int[pilha.length];
+        int topo = 0, i = 0, nivel = 0;
+        BinaryTree.Node<T> node = tree.getRoot();
+        while (node != null || topo > 0) {
+            while (node != null) {
+                pilha[topo] = node;
+                pilhaNivel[topo++] = nivel++;
+                node = node.left;
+            }
+            node = pilha[--topo];
+            nivel = pilhaNivel[topo];
+            int ocorrencias = BinaryTree.countOf(node);
+            if (ocorrencias == 0) morto[i] = true; // lápide: uma posição, só para o RMQ
+            for (int c = Math.max(ocorrencias, 1); c > 0; c--) { // multiset: uma posição por ocorrência
+                values[i] = node.value;
+                depth[i++] = nivel;
+            }
+            node = node.right;
+            nivel++;
+        }
+
+        // sparse table: cada nível combina dois intervalos do nível anterior
+        int niveis = n == 0 ? 0 : 32 - Integer.numberOfLeadingZeros(n);
+        tabela = new int[niveis][];
+        if (niveis > 0) {
+            tabela[0] = new int[n];
+            for (int j = 0; j < n; j++) tabela[0][j] = j;
+        }
+        for (int k = 1; k < niveis; k++) {
+            int meio = 1 << (k - 1);
+            int[] anterior = tabela[k - 1];
+            int[] atual = new int[n - (1 << k) + 1];
+            for (int j = 0; j < atual.length; j++)
+                atual[j] = shallower(anterior[j], anterior[j + meio]);
+            tabela[k] = atual;
+        }
+    }
+
+    private int shallower(int a, int b) {
+        return depth[a] <= depth[b] ? a : b;
+    }
+
+
+    // ============================================================
+    //                    CONSULTAS POR ID (O(1))
+    // ============================================================
+    /**
+     * Quantidade de ids: as ocorrências vivas mais as lápides.
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Id (posição in-ordem) do valor, ou -1 se não estiver no índice (ou
+     * só houver lápides dele).
+     */
+    @SuppressWarnings("unchecked")
+    public int indexOf(T value) {
+        int i = Arrays.binarySearch(values, value);
+        if (i < 0 || morto == null || !morto[i]) return i >= 0 ? i : -1;
+
+        // caiu numa lápide: procura uma ocorrência viva entre as iguais
+        while (i > 0 && value.compareTo((T) values[i - 1]) == 0) i--;
+        for (; i < values.length && value.compareTo((T) values[i]) == 0; i++)
+            if (!morto[i]) return i;
+        return -1;
+    }
+
+    /**
+     * Se o id é de uma lápide (com remoção lazy, ver o comentário da classe).
+     */
+    public boolean isTombstone(int id) {
+        return morto != null && morto[id];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T valueAt(int id) {
+        return (T) values[id];
+    }
+
+    public int depthAt(int id) {
+        return depth[id];
+    }
+
+    /**
+     * Id do ancestral comum mais próximo: menor profundidade entre os dois ids.
+     */
+    public int lca(int a, int b) {
+        if (a > b) {
+            int tmp = a;
+            a = b;
+            b = tmp;
+        }
+        int k = 31 - Integer.numberOfLeadingZeros(b - a + 1);
+        return shallower(tabela[k][a], tabela[k][b - (1 << k) + 1]);
+    }
+
+    /**
+     * Quantidade de arestas no caminho entre os dois nós.
+     */
+    public int distanceBetweenIds(int a, int b) {
+        return depth[a] + depth[b] - 2 * depth[lca(a, b)];
+    }
+
+
+    // ============================================================
+    //                    CONSULTAS POR VALOR
+    // ============================================================
+    public int depth(T value) {
+        int id = indexOf(value);
+        return id < 0 ? -1 : depth[id];
+    }
+
+    /**
+     * LCA dos dois valores, ou null se algum não estiver no índice.
+     */
+    public T lowestCommonAncestor(T a, T b) {
+        int ia = indexOf(a), ib = indexOf(b);
+        return (ia < 0 || ib < 0) ? null : valueAt(lca(ia, ib));
+    }
+
+    /**
+     * Distância entre os dois valores, ou -1 se algum não estiver no índice.
+     */
+    public int distance(T a, T b) {
+        int ia = indexOf(a), ib = indexOf(b);
+        return (ia < 0 || ib < 0) ? -1 : distanceBetweenIds(ia, ib);
+    }
+
+
+    // ============================================================
+    //                         EM LOTE
+    // ============================================================
+    /**
+     * out[i] = id do LCA de a[i] e b[i].
+     */
+    public void lca(int[] a, int[] b, int[] out) {
+        for (int i = 0; i < out.length; i++)
+            out[i] = lca(a[i], b[i]);
+    }
+
+    /**
+     * out[i] = distância entre a[i] e b[i].
+     */
+    public void distancesBetweenIds(int[] a, int[] b, int[] out) {
+        for (int i = 0; i < out.length; i++)
+            out[i] = distanceBetweenIds(a[i], b[i]);
+    }
+
+    /**
+     * out[i] = LCA de a[i] e b[i] (null se algum dos dois não existir).
+     */
+    public void lowestCommonAncestors(T[] a, T[] b, T[] out) {
+        for (int i = 0; i < out.length; i++)
+            out[i] = lowestCommonAncestor(a[i], b[i]);
+    }
+
+    /**
+     * out[i] = distância entre a[i] e b[i] (-1 se algum dos dois não existir).
+     */
+    public void distances(T[] a, T[] b, int[] out) {
+        for (int i = 0; i < out.length; i++)
+            out[i] = distance(a[i], b[i]);
+    }
+}
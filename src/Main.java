@@ -1,3 +1,6 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 public class Main {
@@ -94,5 +97,24 @@ public class Main {
         );
 
         System.out.println("LCA = " + lca);
+
+        // ==================== SNAPSHOT ====================
+        titulo("SNAPSHOT (GRAVAR E CARREGAR)");
+
+        // Grava a árvore em um arquivo binário e carrega de volta:
+        // a carga religa os nós na mesma forma, sem chamar compareTo.
+        try {
+            Path arquivo = Files.createTempFile("arvore", ".snap");
+            try {
+                TreeSnapshot.write(tree, arquivo, new PersonCodec());
+                BinaryTree<Person> carregada = TreeSnapshot.read(arquivo, new PersonCodec(), tree.getBalancing());
+                System.out.println("Carregada do arquivo (" + carregada.size() + " pessoas):");
+                carregada.printAsciiTree();
+            } finally {
+                Files.deleteIfExists(arquivo);
+            }
+        } catch (IOException e) {
+            System.out.println("Erro no snapshot: " + e.getMessage());
+        }
     }
 }
@@ -0,0 +1,251 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Árvore Binária de Busca imutável (persistente), balanceada como AVL.
+ *
+ * insert e remove não alteram esta versão: devolvem uma nova árvore que
+ * copia apenas os nós do caminho da raiz até a mudança (path copying) e
+ * compartilha todos os outros nós com a versão anterior. Cada operação
+ * cria O(log n) nós.
+ *
+ * Como nenhum nó publicado é modificado, guardar uma versão já é um
+ * snapshot em O(1): leitores (contains, pathBetween, TreePrinter...)
+ * trabalham sobre a versão que têm em mãos, sem travas e sem nunca ver
+ * uma atualização pela metade. Para compartilhar a versão atual entre
+ * threads, publique-a por um campo volatile ou AtomicReference.
+ */
+public final class PersistentBinaryTree<T extends Comparable<T>> implements Iterable<T> {
+
+    private static final PersistentBinaryTree<?> VAZIA = new PersistentBinaryTree<>(null);
+
+    private final BinaryTree.Node<T> root;
+
+    private PersistentBinaryTree(BinaryTree.Node<T> root) {
+        this.root = root;
+    }
+
+    /**
+     * Árvore vazia (compartilhada entre todos os tipos).
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Comparable<T>> PersistentBinaryTree<T> empty() {
+        return (PersistentBinaryTree<T>) VAZIA;
+    }
+
+    private PersistentBinaryTree<T> withRoot(BinaryTree.Node<T> novaRaiz) {
+        return novaRaiz == root ? this : new PersistentBinaryTree<>(novaRaiz);
+    }
+
+
+    // ============================================================
+    //                 CONSTRUÇÃO DE NÓS (imutáveis)
+    // ============================================================
+    /**
+     * Cria um nó novo já com altura e tamanho calculados.
+     * Depois de criado, o nó nunca mais é alterado.
+     */
+    private static <T> BinaryTree.Node<T> node(T value, BinaryTree.Node<T> left, BinaryTree.Node<T> right) {
+        BinaryTree.Node<T> n = new BinaryTree.Node<>(value);
+        n.left = left;
+        n.right = right;
+        BinaryTree.update(n);
+        return n;
+    }
+
+    /**
+     * Cria o nó (value, left, right) corrigindo o balanceamento AVL com
+     * rotações que também só criam nós novos.
+     */
+    private static <T> BinaryTree.Node<T> balance(T value, BinaryTree.Node<T> left, BinaryTree.Node<T> right) {
+        int hl = BinaryTree.heightOf(left);
+        int hr = BinaryTree.heightOf(right);
+
+        if (hl > hr + 1) {
+            if (BinaryTree.heightOf(left.left) >= BinaryTree.heightOf(left.right)) // rotação à direita
+                return node(left.value, left.left, node(value, left.right, right));
+
+            BinaryTree.Node<T> lr = left.right;                                  // esquerda-direita
+            return node(lr.value, node(left.value, left.left, lr.left), node(value, lr.right, right));
+        }
+
+        if (hr > hl + 1) {
+            if (BinaryTree.heightOf(right.right) >= BinaryTree.heightOf(right.left)) // rotação à esquerda
+                return node(right.value, node(value, left, right.left), right.right);
+
+            BinaryTree.Node<T> rl = right.left;                                     // direita-esquerda
+            return node(rl.value, node(value, left, rl.left), node(right.value, rl.right, right.right));
+        }
+
+        return node(value, left, right);
+    }
+
+
+    // ============================================================
+    //                   INSERÇÃO E REMOÇÃO
+    // ============================================================
+    /**
+     * Nova versão com o valor inserido. Esta versão continua igual.
+     */
+    public PersistentBinaryTree<T> insert(T value) {
+        return withRoot(insert(root, value));
+    }
+
+    // recursão com profundidade O(log n), pois a árvore é sempre AVL
+    private static <T extends Comparable<T>> BinaryTree.Node<T> insert(BinaryTree.Node<T> node, T value) {
+        if (node == null) return node(value, null, null);
+
+        if (value.compareTo(node.value) < 0)
+            return balance(node.value, insert(node.left, value), node.right);
+        return balance(node.value, node.left, insert(node.right, value));
+    }
+
+    /**
+     * Nova versão sem o valor (ou esta mesma, se o valor não existir).
+     */
+    public PersistentBinaryTree<T> remove(T value) {
+        return withRoot(remove(root, value));
+    }
+
+    /**
+     * Devolve o mesmo nó quando o valor não está na subárvore, para que
+     * nada seja copiado à toa.
+     */
+    private static <T extends Comparable<T>> BinaryTree.Node<T> remove(BinaryTree.Node<T> node, T value) {
+        if (node == null) return null;
+
+        int cmp = value.compareTo(node.value);
+        if (cmp < 0) {
+            BinaryTree.Node<T> left = remove(node.left, value);
+            return left == node.left ? node : balance(node.value, left, node.right);
+        }
+        if (cmp > 0) {
+            BinaryTree.Node<T> right = remove(node.right, value);
+            return right == node.right ? node : balance(node.value, node.left, right);
+        }
+
+        // achou: 0 ou 1 filho → o filho ocupa o lugar
+        if (node.left == null) return node.right;
+        if (node.right == null) return node.left;
+
+        // 2 filhos → o sucessor (menor da direita) ocupa o lugar
+        BinaryTree.Node<T> sucessor = node.right;
+        while (sucessor.left != null)
+            sucessor = sucessor.left;
+        return balance(sucessor.value, node.left, removeMin(node.right));
+    }
+
+    private static <T> BinaryTree.Node<T> removeMin(BinaryTree.Node<T> node) {
+        if (node.left == null) return node.right;
+        return balance(node.value, removeMin(node.left), node.right);
+    }
+
+
+    // ============================================================
+    //                         CONSULTAS
+    // ============================================================
+    public boolean contains(T value) {
+        return depth(value) >= 0;
+    }
+
+    public int depth(T value) {
+        int level = 0;
+        BinaryTree.Node<T> node = root;
+        while (node != null) {
+            int cmp = value.compareTo(node.value);
+            if (cmp == 0) return level;
+            node = (cmp < 0) ? node.left : node.right;
+            level++;
+        }
+        return -1;
+    }
+
+    public int height() {
+        return BinaryTree.heightOf(root);
+    }
+
+    public int size() {
+        return BinaryTree.sizeOf(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    public List<T> pathTo(T value) {
+        return pathFrom(root, value);
+    }
+
+    private static <T extends Comparable<T>> List<T> pathFrom(BinaryTree.Node<T> node, T value) {
+        List<T> path = new ArrayList<>();
+        while (node != null) {
+            path.add(node.value);
+            int cmp = value.compareTo(node.value);
+            if (cmp == 0) return path;
+            node = (cmp < 0) ? node.left : node.right;
+        }
+        path.clear();
+        return path;
+    }
+
+    /**
+     * Caminho entre dois valores: sobe de A até o LCA e desce até B.
+     */
+    public List<T> pathBetween(T a, T b) {
+        List<T> result = new ArrayList<>();
+        BinaryTree.Node<T> lca = lcaNode(a, b);
+        if (lca == null) return result;
+
+        List<T> ateA = pathFrom(lca, a);
+        List<T> ateB = pathFrom(lca, b);
+        if (ateA.isEmpty() || ateB.isEmpty()) return result;
+
+        for (int j = ateA.size() - 1; j >= 0; j--) result.add(ateA.get(j)); // A → LCA
+        for (int j = 1; j < ateB.size(); j++) result.add(ateB.get(j));      // LCA → B
+        return result;
+    }
+
+    public T lowestCommonAncestor(T a, T b) {
+        BinaryTree.Node<T> lca = lcaNode(a, b);
+        return lca == null ? null : lca.value;
+    }
+
+    private BinaryTree.Node<T> lcaNode(T a, T b) {
+        BinaryTree.Node<T> node = root;
+        while (node != null) {
+            int ca = a.compareTo(node.value);
+            int cb = b.compareTo(node.value);
+            if (ca < 0 && cb < 0) node = node.left;
+            else if (ca > 0 && cb > 0) node = node.right;
+            else return node;
+        }
+        return null;
+    }
+
+
+    // ============================================================
+    //                         PERCURSOS
+    // ============================================================
+    @Override
+    public Iterator<T> iterator() {
+        return iterator(BinaryTree.Traversal.IN_ORDER);
+    }
+
+    public Iterator<T> iterator(BinaryTree.Traversal ordem) {
+        return new TreeSpliterator<>(root, ordem);
+    }
+
+    public Stream<T> stream() {
+        return StreamSupport.stream(new TreeSpliterator<>(root, BinaryTree.Traversal.IN_ORDER), false);
+    }
+
+    /**
+     * Raiz desta versão (ex.: para TreePrinter.printNode). Não altere os nós.
+     */
+    public BinaryTree.Node<T> getRoot() {
+        return root;
+    }
+}
@@ -1,3 +1,5 @@
+import java.util.Arrays;
+
 // A classe Person representa uma pessoa com nome e idade.
 // Ela implementa Comparable para permitir ordenação em árvores binárias.
 public class Person implements Comparable<Person> {
@@ -8,20 +10,110 @@ public class Person implements Comparable<Person> {
     // Atributo que guarda a idade da pessoa
     private int age;
 
+    // Chave de ordenação: o nome já "dobrado" (maiúsculas/minúsculas
+    // unificadas), calculada uma única vez no construtor
+    private final String sortKey;
+
+    // Os 4 primeiros caracteres da chave empacotados em um long (16 bits
+    // cada). A maioria das comparações se resolve só com esse número.
+    private final long sortPrefix;
+
     // Construtor: usado para criar uma nova pessoa com nome e idade
     public Person(String name, int age){
         this.name = name;
         this.age = age;
+        this.sortKey = fold(name);
+        this.sortPrefix = pack(sortKey);
+    }
+
+    /*
+        Unifica maiúsculas/minúsculas code point a code point, do mesmo
+        jeito que String.compareToIgnoreCase faz em cada comparação
+        (toUpperCase e depois toLowerCase). Caracteres fora do BMP (ex.:
+        Deseret, U+10400 e U+10428) são um par de chars e precisam ser
+        dobrados juntos, como code point.
+
+        compareToIgnoreCase ordena pelos code points, e String.compareTo
+        pelos chars UTF-16, que não seguem a mesma ordem. Por isso a chave
+        não é o texto dobrado em si, e sim uma codificação dele em que a
+        ordem dos chars é a ordem dos code points:
+        - até U+D7FE: o próprio char
+        - U+E000 a U+FFFF: 0x800 abaixo (0xD800 a 0xF7FF)
+        - fora do BMP: o par de chars, cada um 0x2000 acima (0xF800 em diante)
+        - U+D7FF e surrogates sozinhos: 0xD7FF seguido de 0 (U+D7FF) ou de
+          1 a 0x800 (o surrogate, ordenado como code point 0xD800 a 0xDFFF)
+        Assim comparar as chaves com compareTo dá o mesmo resultado que
+        compareToIgnoreCase nos nomes. A exceção é UTF-16 malformado (surrogate
+        sozinho), em que compareToIgnoreCase nem é uma ordem consistente
+        (pode dar 0 para nomes diferentes); aí vale a ordem dos code points.
+    */
+    private static String fold(String s){
+        char[] c = new char[s.length()];
+        int n = 0;
+        for(int i = 0; i < s.length(); ){
+            int cp = s.codePointAt(i);
+            i += Character.charCount(cp);
+            cp = Character.toLowerCase(Character.toUpperCase(cp));
+
+            if(n + 2 > c.length){
+                c = Arrays.copyOf(c, c.length + (c.length >> 1) + 2);
+            }
+            if(cp < 0xD7FF){
+                c[n++] = (char) cp;
+            } else if(cp < 0xE000){ // U+D7FF ou surrogate sozinho
+                c[n++] = 0xD7FF;
+                c[n++] = (char) (cp == 0xD7FF ? 0 : cp - 0xD800 + 1);
+            } else if(cp <= 0xFFFF){
+                c[n++] = (char) (cp - 0x800);
+            } else {
+                c[n++] = (char) (Character.highSurrogate(cp) + 0x2000);
+                c[n++] = (char) (Character.lowSurrogate(cp) + 0x2000);
+            }
+        }
+        return new String(c, 0, n);
+    }
+
+    /*
+        Empacota os 4 primeiros caracteres da chave (o primeiro nos bits mais
+        altos). Nomes mais curtos ficam com zeros no fim, o que mantém a
+        ordem: comparar os longs sem sinal equivale a comparar esse trecho.
+    */
+    private static long pack(String key){
+        long p = 0;
+        for(int i = 0; i < 4; i++){
+            p = (p << 16) | (i < key.length() ? key.charAt(i) : 0);
+        }
+        return p;
+    }
+
+    // Getters usados, por exemplo, na gravação da árvore em arquivo
+    public String getName(){
+        return name;
+    }
+
+    public int getAge(){
+        return age;
+    }
+
+    // Prefixo de ordenação, usado pela BinaryTree (ex.: Person::sortPrefix)
+    public long sortPrefix(){
+        return sortPrefix;
     }
 
     /*
         O método compareTo define como duas pessoas serão comparadas.
         Aqui, estamos ordenando APENAS pelo nome, ignorando letras maiúsculas/minúsculas.
         Isso é fundamental para que a árvore binária saiba onde inserir cada pessoa.
+
+        Primeiro compara os prefixos (um único long); só se empatarem
+        compara as chaves completas, que já estão normalizadas.
     */
     @Override
     public int compareTo(Person other){
-        return this.name.compareToIgnoreCase(other.name);
+        if(this.sortPrefix != other.sortPrefix){
+            return Long.compareUnsigned(this.sortPrefix, other.sortPrefix);
+        }
+        return this.sortKey.compareTo(other.sortKey);
     }
 
     /*
@@ -54,13 +146,13 @@ public class Person implements Comparable<Person> {
         // Fazemos um cast seguro para Person
         Person p = (Person) o;
 
-        // Compara apenas o nome (ignorando maiúsculas/minúsculas)
-        return this.name.equalsIgnoreCase(p.name);
+        // Compara apenas o nome (ignorando maiúsculas/minúsculas), pela chave normalizada
+        return this.sortPrefix == p.sortPrefix && this.sortKey.equals(p.sortKey);
     }
 
     @Override
     public int hashCode(){
-        // Converte o nome para minúsculas antes de gerar o hash para manter consistência
-        return name.toLowerCase().hashCode();
+        // Usa a chave normalizada (a String guarda o próprio hash, sem alocar nada)
+        return sortKey.hashCode();
     }
 }
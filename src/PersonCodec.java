@@ -0,0 +1,36 @@
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Formato binário de uma Person:
+ * - tamanho do nome em bytes (int)
+ * - nome em UTF-8
+ * - idade (int)
+ */
+public class PersonCodec implements TreeCodec<Person> {
+
+    @Override
+    public int maxEncodedSize(Person p) {
+        // cada char ocupa no máximo 3 bytes em UTF-8
+        return 4 + 3 * p.getName().length() + 4;
+    }
+
+    @Override
+    public void encode(Person p, ByteBuffer out) {
+        byte[] nome = p.getName().getBytes(StandardCharsets.UTF_8);
+        out.putInt(nome.length);
+        out.put(nome);
+        out.putInt(p.getAge());
+    }
+
+    @Override
+    public Person decode(ByteBuffer in) {
+        int tamanho = in.getInt();
+        if (tamanho < 0 || tamanho > in.remaining()) // arquivo corrompido ou truncado
+            throw new BufferUnderflowException();
+        byte[] nome = new byte[tamanho];
+        in.get(nome);
+        return new Person(new String(nome, StandardCharsets.UTF_8), in.getInt());
+    }
+}
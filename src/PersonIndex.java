@@ -0,0 +1,257 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Conjunto de pessoas com dois índices mantidos juntos:
+ * - primário: BinaryTree por nome (a ordem de Person.compareTo)
+ * - secundário: BinaryTree por (idade, nome)
+ *
+ * insert e remove atualizam os dois. Como as árvores guardam o tamanho de
+ * cada subárvore, perguntas por idade não percorrem todo mundo:
+ * - faixa de idades: O(log n + k) para listar, O(log n) para contar
+ * - k mais velhos / mais novos: O(log n + k)
+ *
+ * Os nomes são únicos (como em Person.equals): inserir um nome que já
+ * existe substitui a pessoa anterior, o que atualiza a idade nos dois índices.
+ *
+ * As duas árvores são AVL por padrão. O índice por idade usa o prefixo
+ * long (idade nos 32 bits altos, início do nome nos baixos), então a
+ * maioria das comparações nele também é uma única comparação de longs.
+ */
+public class PersonIndex {
+
+    private final BinaryTree<Person> porNome;
+    private final BinaryTree<PorIdade> porIdade;
+
+    public PersonIndex() {
+        this(BinaryTree.Balancing.AVL);
+    }
+
+    public PersonIndex(BinaryTree.Balancing balancing) {
+        porNome = new BinaryTree<>(balancing, Person::sortPrefix);
+        porIdade = new BinaryTree<>(balancing, PorIdade::prefix);
+    }
+
+
+    // ============================================================
+    //                  CHAVE DO ÍNDICE POR IDADE
+    // ============================================================
+    /**
+     * Entrada do índice secundário: ordena por idade e, na mesma idade,
+     * por nome. Sem pessoa, é um marcador que fica antes (lado < 0) ou
+     * depois (lado > 0) de todas as pessoas daquela idade, usado como
+     * limite das consultas por faixa.
+     */
+    private static final class PorIdade implements Comparable<PorIdade> {
+        final int age;
+        final Person person; // null nos marcadores
+        final int lado;
+
+        PorIdade(Person person) {
+            this(person.getAge(), person, 0);
+        }
+
+        PorIdade(int age, Person person, int lado) {
+            this.age = age;
+            this.person = person;
+            this.lado = lado;
+        }
+
+        static PorIdade antes(int age) {
+            return new PorIdade(age, null, -1);
+        }
+
+        static PorIdade depois(int age) {
+            return new PorIdade(age, null, 1);
+        }
+
+        /**
+         * Idade (com o bit de sinal invertido, para a ordem sem sinal valer
+         * também para idades negativas) e os 2 primeiros caracteres do nome.
+         */
+        long prefix() {
+            long idade = (age ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+            long nome = person != null ? person.sortPrefix() >>> 32 : (lado < 0 ? 0 : 0xFFFFFFFFL);
+            return idade << 32 | nome;
+        }
+
+        @Override
+        public int compareTo(PorIdade o) {
+            if (age != o.age) return Integer.compare(age, o.age);
+            if (person == null || o.person == null) return Integer.compare(lado, o.lado);
+            return person.compareTo(o.person);
+        }
+    }
+
+
+    // ============================================================
+    //                   INSERÇÃO E REMOÇÃO
+    // ============================================================
+    /**
+     * Insere a pessoa; se já existir alguém com o mesmo nome, substitui.
+     */
+    public void insert(Person p) {
+        Person antiga = get(p);
+        if (antiga != null) {
+            porNome.remove(antiga);
+            porIdade.remove(new PorIdade(antiga));
+        }
+        porNome.insert(p);
+        porIdade.insert(new PorIdade(p));
+    }
+
+    /**
+     * Insere várias pessoas (a última ocorrência de cada nome vence).
+     * Com o índice vazio, as duas árvores são montadas de uma vez com
+     * insertAll (ordenação única e construção balanceada em tempo linear).
+     */
+    public void insertAll(Collection<Person> pessoas) {
+        if (!porNome.isEmpty()) {
+            for (Person p : pessoas) insert(p);
+            return;
+        }
+
+        Map<Person, Person> unicas = new LinkedHashMap<>();
+        for (Person p : pessoas) {
+            unicas.remove(p); // Person.equals compara só o nome
+            unicas.put(p, p);
+        }
+
+        List<PorIdade> entradas = new ArrayList<>(unicas.size());
+        for (Person p : unicas.values()) entradas.add(new PorIdade(p));
+        porNome.insertAll(unicas.values());
+        porIdade.insertAll(entradas);
+    }
+
+    /**
+     * Remove a pessoa com esse nome (a idade informada é ignorada).
+     * Retorna false se não existir.
+     */
+    public boolean remove(Person p) {
+        Person guardada = get(p);
+        if (guardada == null) return false;
+
+        porNome.remove(guardada);
+        porIdade.remove(new PorIdade(guardada));
+        return true;
+    }
+
+
+    // ============================================================
+    //                      CONSULTAS POR NOME
+    // ============================================================
+    /**
+     * Pessoa guardada com o mesmo nome (com a idade atual), ou null.
+     */
+    public Person get(Person p) {
+        BinaryTree.Node<Person> node = porNome.find(p);
+        return node == null ? null : node.value;
+    }
+
+    public boolean contains(Person p) {
+        return porNome.contains(p);
+    }
+
+    public int size() {
+        return porNome.size();
+    }
+
+    public boolean isEmpty() {
+        return porNome.isEmpty();
+    }
+
+    /**
+     * Pessoas em ordem de nome.
+     */
+    public Stream<Person> byName() {
+        return porNome.stream();
+    }
+
+    /**
+     * Índice primário (somente leitura: alterá-lo direto dessincroniza os índices).
+     */
+    public BinaryTree<Person> getNameTree() {
+        return porNome;
+    }
+
+
+    // ============================================================
+    //                      CONSULTAS POR IDADE
+    // ============================================================
+    /**
+     * Pessoas com idade entre min e max (inclusive), da mais nova para a
+     * mais velha (mesma idade: ordem de nome). O(log n + k).
+     */
+    public Stream<Person> ageRange(int min, int max) {
+        return porIdade.range(PorIdade.antes(min), true, PorIdade.depois(max), true)
+                .map(e -> e.person);
+    }
+
+    /**
+     * Quantidade de pessoas com idade entre min e max, em O(log n).
+     */
+    public int ageRangeCount(int min, int max) {
+        if (min > max) return 0;
+        return porIdade.rangeCount(PorIdade.antes(min), true, PorIdade.depois(max), true);
+    }
+
+    /**
+     * Quantidade de pessoas com exatamente essa idade, em O(log n).
+     */
+    public int countByAge(int age) {
+        return ageRangeCount(age, age);
+    }
+
+    /**
+     * Pessoas em ordem de idade (mesma idade: ordem de nome).
+     */
+    public Stream<Person> byAge() {
+        return porIdade.stream().map(e -> e.person);
+    }
+
+    /**
+     * As k pessoas mais novas, da mais nova para a mais velha. O(log n + k).
+     */
+    public List<Person> youngest(int k) {
+        List<Person> resultado = new ArrayList<>(Math.min(Math.max(k, 0), size()));
+        porIdade.stream().limit(Math.max(k, 0)).forEach(e -> resultado.add(e.person));
+        return resultado;
+    }
+
+    /**
+     * As k pessoas mais velhas, da mais velha para a mais nova. O(log n + k):
+     * select localiza a k-ésima mais velha pelo tamanho das subárvores e o
+     * intervalo dali até o fim é percorrido uma vez.
+     */
+    public List<Person> oldest(int k) {
+        int n = size();
+        k = Math.min(Math.max(k, 0), n);
+        List<Person> resultado = new ArrayList<>(k);
+        if (k == 0) return resultado;
+
+        PorIdade primeira = porIdade.select(n - k);
+        porIdade.range(primeira, true, porIdade.select(n - 1), true)
+                .forEach(e -> resultado.add(e.person));
+        Collections.reverse(resultado);
+        return resultado;
+    }
+
+    /**
+     * Pessoa mais nova (ou null se vazio). Com empate, a primeira em ordem de nome.
+     */
+    public Person youngest() {
+        return isEmpty() ? null : porIdade.select(0).person;
+    }
+
+    /**
+     * Pessoa mais velha (ou null se vazio). Com empate, a última em ordem de nome.
+     */
+    public Person oldest() {
+        return isEmpty() ? null : porIdade.select(size() - 1).person;
+    }
+}
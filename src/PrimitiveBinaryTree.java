@@ -0,0 +1,313 @@
+import java.util.Arrays;
+
+/**
+ * Parte comum de IntBinaryTree, LongBinaryTree e ArenaBinaryTree: a
+ * estrutura em vetores paralelos e os algoritmos que não olham para as
+ * chaves.
+ *
+ * - left[i]   → índice do filho esquerdo (NIL = sem filho)
+ * - right[i]  → índice do filho direito
+ * - height[i] → altura da subárvore do nó i
+ *
+ * O vetor de chaves fica na subclasse, com o tipo primitivo dela; as
+ * descidas (que comparam chaves) também, para não haver boxing nem uma
+ * chamada virtual por comparação. Aqui ficam o pool de nós com lista
+ * livre e a compactação dele, o caminho reutilizável, a retirada física
+ * do nó e o rebalanceamento AVL.
+ *
+ * SPLAY não é suportado: o splay reorganiza a árvore a cada busca, e
+ * estas árvores são feitas para buscas somente leitura sem alocação.
+ */
+abstract class PrimitiveBinaryTree {
+
+    static final int NIL = -1;
+
+    int[] left;
+    int[] right;
+    int[] height;
+
+    int root = NIL;  // índice da raiz
+    int size;        // quantidade de elementos
+    private int usados;      // posições já entregues alguma vez (topo do pool)
+    private int livre = NIL; // início da lista livre
+
+    private final BinaryTree.Balancing balancing;
+
+    // caminho reutilizável percorrido por insert/remove/pathTo
+    int[] caminho = new int[32];
+
+    /**
+     * @param capacidade quantidade de nós reservada de início
+     */
+    PrimitiveBinaryTree(BinaryTree.Balancing balancing, int capacidade) {
+        if (balancing == BinaryTree.Balancing.SPLAY)
+            throw new IllegalArgumentException("SPLAY não é suportado em " + getClass().getSimpleName());
+        this.balancing = balancing;
+        capacidade = Math.max(capacidade, 1);
+        left = new int[capacidade];
+        right = new int[capacidade];
+        height = new int[capacidade];
+    }
+
+    /**
+     * Capacidade atual do vetor de chaves da subclasse.
+     */
+    abstract int capacity();
+
+    /**
+     * Redimensiona o vetor de chaves da subclasse.
+     */
+    abstract void growKeys(int capacidade);
+
+    /**
+     * Copia a chave do nó {@code de} para o nó {@code para}.
+     */
+    abstract void copyKey(int de, int para);
+
+    /**
+     * Troca o vetor de chaves por um de tamanho {@code capacidade}, com a
+     * chave da posição antiga i na posição novoIndice[i] (NIL = descartar).
+     */
+    abstract void relocateKeys(int[] novoIndice, int capacidade);
+
+    /**
+     * Chamado quando a posição volta para a lista livre. Chaves primitivas
+     * não precisam de nada; a arena solta a referência ao valor.
+     */
+    void clearKey(int node) {
+    }
+
+
+    // ============================================================
+    //                       POOL DE NÓS
+    // ============================================================
+    /**
+     * Entrega uma posição livre (reusando removidos antes de crescer).
+     * A subclasse grava a chave na posição devolvida.
+     */
+    int allocate() {
+        int node;
+        if (livre != NIL) {
+            node = livre;
+            livre = left[node];
+        } else {
+            if (usados == capacity()) grow();
+            node = usados++;
+        }
+        left[node] = NIL;
+        right[node] = NIL;
+        height[node] = 0;
+        return node;
+    }
+
+    /**
+     * Devolve a posição para a lista livre.
+     */
+    private void release(int node) {
+        clearKey(node);
+        left[node] = livre;
+        livre = node;
+    }
+
+    private void grow() {
+        int nova = capacity() + (capacity() >> 1) + 1;
+        growKeys(nova);
+        left = Arrays.copyOf(left, nova);
+        right = Arrays.copyOf(right, nova);
+        height = Arrays.copyOf(height, nova);
+    }
+
+    void push(int topo, int node) {
+        if (topo == caminho.length)
+            caminho = Arrays.copyOf(caminho, topo * 2);
+        caminho[topo] = node;
+    }
+
+    /**
+     * Reorganiza o pool: os nós vivos passam a ocupar as posições 0..size-1
+     * em pré-ordem (pai seguido da subárvore esquerda), a lista livre é
+     * descartada e os vetores são reduzidos ao tamanho exato.
+     */
+    public void compact() {
+        int[] novoIndice = new int[usados];
+        Arrays.fill(novoIndice, NIL);
+
+        // 1ª passada: numera os nós na ordem de visita (pré-ordem)
+        int[] pilha = new int[Math.max(size, 1)];
+        int topo = 0, proximo = 0;
+        if (root != NIL) pilha[topo++] = root;
+        while (topo > 0) {
+            int node = pilha[--topo];
+            novoIndice[node] = proximo++;
+            if (right[node] != NIL) pilha[topo++] = right[node];
+            if (left[node] != NIL) pilha[topo++] = left[node];
+        }
+
+        // 2ª passada: copia cada nó vivo para a nova posição
+        int capacidade = Math.max(size, 1);
+        relocateKeys(novoIndice, capacidade);
+        int[] novoLeft = new int[capacidade];
+        int[] novoRight = new int[capacidade];
+        int[] novaAltura = new int[capacidade];
+        for (int old = 0; old < usados; old++) {
+            int n = novoIndice[old];
+            if (n == NIL) continue; // posição livre
+
+            novoLeft[n] = left[old] == NIL ? NIL : novoIndice[left[old]];
+            novoRight[n] = right[old] == NIL ? NIL : novoIndice[right[old]];
+            novaAltura[n] = height[old];
+        }
+
+        left = novoLeft;
+        right = novoRight;
+        height = novaAltura;
+        root = (root == NIL) ? NIL : 0;
+        usados = size;
+        livre = NIL;
+    }
+
+
+    // ============================================================
+    //                   INSERÇÃO E REMOÇÃO
+    // ============================================================
+    /**
+     * Liga o nó novo como filho do último nó do caminho (caminho[topo - 1])
+     * e sobe rebalanceando. {@code esquerda} diz de que lado.
+     */
+    void link(int topo, int novo, boolean esquerda) {
+        size++;
+        if (topo == 0) {
+            root = novo;
+            return;
+        }
+        int pai = caminho[topo - 1];
+        if (esquerda) left[pai] = novo;
+        else right[pai] = novo;
+        fixUp(topo);
+    }
+
+    /**
+     * Retira o nó {@code atual}, cujos ancestrais estão em caminho[0, topo).
+     */
+    void unlink(int topo, int atual) {
+        if (left[atual] != NIL && right[atual] != NIL) {
+            // 2 filhos: copia o sucessor e remove o nó dele
+            int alvo = atual;
+            push(topo++, alvo);
+            atual = right[alvo];
+            while (left[atual] != NIL) {
+                push(topo++, atual);
+                atual = left[atual];
+            }
+            copyKey(atual, alvo);
+        }
+
+        int filho = (left[atual] != NIL) ? left[atual] : right[atual];
+        replaceChild(topo == 0 ? NIL : caminho[topo - 1], atual, filho);
+        release(atual);
+        size--;
+
+        fixUp(topo);
+    }
+
+    private void replaceChild(int pai, int antigo, int novo) {
+        if (pai == NIL) root = novo;
+        else if (left[pai] == antigo) left[pai] = novo;
+        else right[pai] = novo;
+    }
+
+
+    // ============================================================
+    //                 BALANCEAMENTO (AVL)
+    // ============================================================
+    int heightOf(int node) {
+        return node == NIL ? -1 : height[node];
+    }
+
+    private void update(int node) {
+        height[node] = 1 + Math.max(heightOf(left[node]), heightOf(right[node]));
+    }
+
+    private void fixUp(int topo) {
+        for (int i = topo - 1; i >= 0; i--) {
+            int node = caminho[i];
+            int novaRaiz = rebalance(node);
+            if (novaRaiz != node)
+                replaceChild(i == 0 ? NIL : caminho[i - 1], node, novaRaiz);
+        }
+    }
+
+    private int rebalance(int node) {
+        update(node);
+        if (balancing != BinaryTree.Balancing.AVL) return node;
+
+        int fator = heightOf(left[node]) - heightOf(right[node]);
+        if (fator > 1) {
+            int l = left[node];
+            if (heightOf(left[l]) < heightOf(right[l]))
+                left[node] = rotateLeft(l);
+            return rotateRight(node);
+        }
+        if (fator < -1) {
+            int r = right[node];
+            if (heightOf(right[r]) < heightOf(left[r]))
+                right[node] = rotateRight(r);
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private int rotateRight(int node) {
+        int pivo = left[node];
+        left[node] = right[pivo];
+        right[pivo] = node;
+        update(node);
+        update(pivo);
+        return pivo;
+    }
+
+    private int rotateLeft(int node) {
+        int pivo = right[node];
+        right[node] = left[pivo];
+        left[pivo] = node;
+        update(node);
+        update(pivo);
+        return pivo;
+    }
+
+
+    // ============================================================
+    //                 ALTURA, TAMANHO, PERCURSO
+    // ============================================================
+    public int height() {
+        return heightOf(root);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return root == NIL;
+    }
+
+    /**
+     * Índices dos nós em ordem crescente de chave.
+     */
+    int[] inOrderIndices() {
+        int[] saida = new int[size];
+        int[] pilha = new int[heightOf(root) + 1];
+        int topo = 0, n = 0;
+        int node = root;
+        while (node != NIL || topo > 0) {
+            while (node != NIL) {
+                pilha[topo++] = node;
+                node = left[node];
+            }
+            node = pilha[--topo];
+            saida[n++] = node;
+            node = right[node];
+        }
+        return saida;
+    }
+}
@@ -0,0 +1,322 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Micro-benchmark das operações da BinaryTree.
+ *
+ * Mede, para chaves Person e Integer, em cada tamanho pedido:
+ * - insert com entrada aleatória, ordenada e ordenada ao contrário
+ * - contains (acerto e erro), remove, height, depth, pathTo,
+ *   pathBetween (também nas versões com lista reutilizada) e
+ *   lowestCommonAncestor
+ * - contains e pathTo com acesso concentrado (distribuição Zipf), que
+ *   comparam o modo SPLAY com as árvores estáticas
+ * - contains na cópia congelada (freeze), com e sem prefixo
+ *
+ * Para cada caso faz rodadas de aquecimento (no mínimo 3 e pelo menos 0,5 s,
+ * para o JIT compilar o código) e rodadas medidas,
+ * e informa ns/op e bytes alocados por operação (contador de alocação da
+ * própria thread, equivalente ao "gc.alloc.rate.norm" do JMH).
+ *
+ * Uso: java TreeBenchmark [tamanhos separados por vírgula] [NONE|AVL|SPLAY]
+ * Exemplo: java -Xmx8g TreeBenchmark 1000,100000,10000000 AVL
+ */
+public class TreeBenchmark {
+
+    private static final int AQUECIMENTO = 3;
+    private static final long AQUECIMENTO_MIN_NS = 500_000_000L; // 0,5 s
+    private static final int MEDICOES = 5;
+    private static final int MAX_CONSULTAS = 100_000;
+
+    // árvores sem balanceamento com entrada ordenada custam O(n²):
+    // acima deste tamanho esses casos são pulados
+    private static final int LIMITE_DEGENERADO = 5_000;
+
+    // expoente da distribuição Zipf: com 1.2, as 300 chaves mais acessadas
+    // recebem cerca de 3/4 das consultas em uma árvore de 1 milhão
+    private static final double ZIPF_EXPOENTE = 1.2;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // resultados são acumulados aqui para o JIT não descartar o trabalho
+    private static volatile long sumidouro;
+
+    /**
+     * Um caso medido: executa o trabalho e devolve quantas operações fez.
+     */
+    private interface Operacao {
+        long run();
+    }
+
+    public static void main(String[] args) {
+        int[] tamanhos = {1_000, 100_000, 1_000_000};
+        if (args.length > 0)
+            tamanhos = Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray();
+
+        BinaryTree.Balancing[] modos = BinaryTree.Balancing.values();
+        if (args.length > 1)
+            modos = new BinaryTree.Balancing[] {BinaryTree.Balancing.valueOf(args[1])};
+
+        System.out.printf("%-8s %-5s %-22s %10s %12s %12s%n",
+                "chave", "modo", "operação", "n", "ns/op", "bytes/op");
+
+        for (int n : tamanhos) {
+            for (BinaryTree.Balancing modo : modos) {
+                Random rnd = new Random(42);
+
+                // chaves pares ficam na árvore, ímpares são usadas para "erro"
+                Integer[] inteiros = new Integer[n], inteirosAusentes = new Integer[n];
+                Person[] pessoas = new Person[n], pessoasAusentes = new Person[n];
+                int[] embaralhado = shuffled(n, rnd);
+                for (int i = 0; i < n; i++) {
+                    int k = embaralhado[i];
+                    inteiros[i] = 2 * k;
+                    inteirosAusentes[i] = 2 * k + 1;
+                    pessoas[i] = new Person(String.format("pessoa-%09d", 2 * k), k % 100);
+                    pessoasAusentes[i] = new Person(String.format("pessoa-%09d", 2 * k + 1), k % 100);
+                }
+
+                run("Integer", modo, inteiros, inteirosAusentes, v -> v ^ Long.MIN_VALUE);
+                run("Person", modo, pessoas, pessoasAusentes, Person::sortPrefix);
+            }
+        }
+    }
+
+    /**
+     * Roda todos os casos para um tipo de chave.
+     * {@code presentes} está em ordem aleatória; {@code ausentes} nunca é inserido.
+     * {@code prefixo} é usado apenas pela cópia congelada.
+     */
+    private static <T extends Comparable<T>> void run(String tipo, BinaryTree.Balancing modo,
+                                                      T[] presentes, T[] ausentes,
+                                                      ToLongFunction<? super T> prefixo) {
+        int n = presentes.length;
+        T[] ordenados = presentes.clone();
+        Arrays.sort(ordenados);
+        T[] invertidos = ordenados.clone();
+        for (int i = 0, j = n - 1; i < j; i++, j--) {
+            T tmp = invertidos[i];
+            invertidos[i] = invertidos[j];
+            invertidos[j] = tmp;
+        }
+
+        boolean degenerado = modo == BinaryTree.Balancing.NONE && n > LIMITE_DEGENERADO;
+
+        // ---------------- inserção ----------------
+        measure(tipo, modo, "insert aleatório", n, () -> () -> build(modo, presentes).size());
+        if (!degenerado) {
+            measure(tipo, modo, "insert ordenado", n, () -> () -> build(modo, ordenados).size());
+            measure(tipo, modo, "insert invertido", n, () -> () -> build(modo, invertidos).size());
+        }
+
+        // a partir daqui as medições usam uma árvore montada em ordem aleatória
+        BinaryTree<T> tree = build(modo, presentes);
+        int q = Math.min(n, MAX_CONSULTAS);
+        int[] indices = shuffled(n, new Random(7));
+
+        measure(tipo, modo, "contains (acerto)", n, () -> () -> {
+            long achados = 0;
+            for (int i = 0; i < q; i++)
+                if (tree.contains(presentes[indices[i]])) achados++;
+            sumidouro += achados;
+            return q;
+        });
+
+        measure(tipo, modo, "contains (erro)", n, () -> () -> {
+            long achados = 0;
+            for (int i = 0; i < q; i++)
+                if (tree.contains(ausentes[indices[i]])) achados++;
+            sumidouro += achados;
+            return q;
+        });
+
+        // cópia congelada: sem prefixo só muda o layout; com prefixo a
+        // descida compara apenas longs
+        FrozenBinaryTree<T> congelada = tree.freeze();
+        FrozenBinaryTree<T> congeladaPrefixo = tree.freeze(prefixo);
+        measure(tipo, modo, "contains (freeze)", n, () -> () -> {
+            long achados = 0;
+            for (int i = 0; i < q; i++)
+                if (congelada.contains(presentes[indices[i]])) achados++;
+            sumidouro += achados;
+            return q;
+        });
+
+        measure(tipo, modo, "contains (freeze+pref)", n, () -> () -> {
+            long achados = 0;
+            for (int i = 0; i < q; i++)
+                if (congeladaPrefixo.contains(presentes[indices[i]])) achados++;
+            sumidouro += achados;
+            return q;
+        });
+
+        measure(tipo, modo, "height", n, () -> () -> {
+            long soma = 0;
+            for (int i = 0; i < q; i++) soma += tree.height();
+            sumidouro += soma;
+            return q;
+        });
+
+        measure(tipo, modo, "depth", n, () -> () -> {
+            long soma = 0;
+            for (int i = 0; i < q; i++) soma += tree.depth(presentes[indices[i]]);
+            sumidouro += soma;
+            return q;
+        });
+
+        measure(tipo, modo, "pathTo", n, () -> () -> {
+            long soma = 0;
+            for (int i = 0; i < q; i++) soma += tree.pathTo(presentes[indices[i]]).size();
+            sumidouro += soma;
+            return q;
+        });
+
+        measure(tipo, modo, "pathBetween", n, () -> () -> {
+            long soma = 0;
+            for (int i = 0; i < q; i++)
+                soma += tree.pathBetween(presentes[indices[i]], presentes[indices[q - 1 - i]]).size();
+            sumidouro += soma;
+            return q;
+        });
+
+        // variantes que escrevem em uma lista reutilizada: 0 bytes/op esperado
+        List<T> buffer = new ArrayList<>();
+        measure(tipo, modo, "pathTo (buffer)", n, () -> () -> {
+            long soma = 0;
+            for (int i = 0; i < q; i++) {
+                buffer.clear();
+                tree.pathTo(presentes[indices[i]], buffer);
+                soma += buffer.size();
+            }
+            sumidouro += soma;
+            return q;
+        });
+
+        measure(tipo, modo, "pathBetween (buffer)", n, () -> () -> {
+            long soma = 0;
+            for (int i = 0; i < q; i++) {
+                buffer.clear();
+                tree.pathBetween(presentes[indices[i]], presentes[indices[q - 1 - i]], buffer);
+                soma += buffer.size();
+            }
+            sumidouro += soma;
+            return q;
+        });
+
+        measure(tipo, modo, "lowestCommonAncestor", n, () -> () -> {
+            long soma = 0;
+            for (int i = 0; i < q; i++)
+                soma += tree.lowestCommonAncestor(presentes[indices[i]], presentes[indices[q - 1 - i]]).hashCode();
+            sumidouro += soma;
+            return q;
+        });
+
+        // ---------------- acesso concentrado (Zipf) ----------------
+        // a k-ésima chave mais popular é presentes[indices[k]]: a popularidade
+        // não tem relação com a ordem de inserção (senão as chaves quentes já
+        // estariam perto da raiz da árvore sem balanceamento)
+        int[] zipf = zipf(n, q, new Random(11));
+        for (int i = 0; i < q; i++) zipf[i] = indices[zipf[i]];
+        measure(tipo, modo, "contains (zipf)", n, () -> () -> {
+            long achados = 0;
+            for (int i = 0; i < q; i++)
+                if (tree.contains(presentes[zipf[i]])) achados++;
+            sumidouro += achados;
+            return q;
+        });
+
+        measure(tipo, modo, "pathTo (zipf, buffer)", n, () -> () -> {
+            long soma = 0;
+            for (int i = 0; i < q; i++) {
+                buffer.clear();
+                tree.pathTo(presentes[zipf[i]], buffer);
+                soma += buffer.size();
+            }
+            sumidouro += soma;
+            return q;
+        });
+
+        // ---------------- remoção ----------------
+        // o preparo (fora da medição) monta uma árvore nova a cada rodada
+        measure(tipo, modo, "remove", n, () -> {
+            BinaryTree<T> alvo = build(modo, presentes);
+            return () -> {
+                for (int i = 0; i < n; i++) alvo.remove(presentes[indices[i]]);
+                return n;
+            };
+        });
+    }
+
+    private static <T extends Comparable<T>> BinaryTree<T> build(BinaryTree.Balancing modo, T[] valores) {
+        BinaryTree<T> tree = new BinaryTree<>(modo);
+        for (T value : valores) tree.insert(value);
+        return tree;
+    }
+
+    /**
+     * Executa as rodadas de aquecimento e de medição de um caso e imprime a média.
+     * O Supplier faz o preparo (não medido) e devolve a operação a medir.
+     */
+    private static void measure(String tipo, BinaryTree.Balancing modo, String nome, int n,
+                                Supplier<Operacao> preparo) {
+        long inicioAquecimento = System.nanoTime();
+        for (int i = 0; i < AQUECIMENTO || System.nanoTime() - inicioAquecimento < AQUECIMENTO_MIN_NS; i++)
+            preparo.get().run();
+
+        long tempo = 0, bytes = 0, operacoes = 0;
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < MEDICOES; i++) {
+            Operacao op = preparo.get();
+
+            long bytesAntes = THREADS.getThreadAllocatedBytes(thread);
+            long inicio = System.nanoTime();
+            operacoes += op.run();
+            tempo += System.nanoTime() - inicio;
+            bytes += THREADS.getThreadAllocatedBytes(thread) - bytesAntes;
+        }
+
+        System.out.printf("%-8s %-5s %-22s %10d %12.1f %12.1f%n",
+                tipo, modo, nome, n, (double) tempo / operacoes, (double) bytes / operacoes);
+    }
+
+    /**
+     * Sorteia {@code q} posições em 0..n-1 com distribuição Zipf: a posição k
+     * tem peso 1/(k+1)^ZIPF_EXPOENTE. Usa a função acumulada e busca binária.
+     */
+    private static int[] zipf(int n, int q, Random rnd) {
+        double[] acumulado = new double[n];
+        double soma = 0;
+        for (int k = 0; k < n; k++) {
+            soma += 1.0 / Math.pow(k + 1, ZIPF_EXPOENTE);
+            acumulado[k] = soma;
+        }
+
+        int[] v = new int[q];
+        for (int i = 0; i < q; i++) {
+            int pos = Arrays.binarySearch(acumulado, rnd.nextDouble() * soma);
+            v[i] = Math.min(pos >= 0 ? pos : -pos - 1, n - 1);
+        }
+        return v;
+    }
+
+    /**
+     * Permutação aleatória de 0..n-1 (Fisher-Yates).
+     */
+    private static int[] shuffled(int n, Random rnd) {
+        int[] v = new int[n];
+        for (int i = 0; i < n; i++) v[i] = i;
+        for (int i = n - 1; i > 0; i--) {
+            int j = rnd.nextInt(i + 1);
+            int tmp = v[i];
+            v[i] = v[j];
+            v[j] = tmp;
+        }
+        return v;
+    }
+}
@@ -0,0 +1,26 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Converte valores da árvore para bytes e de volta, usado pelo TreeSnapshot.
+ * Cada tipo armazenado define o seu (ex.: PersonCodec).
+ */
+public interface TreeCodec<T> {
+
+    /**
+     * Limite superior de bytes que encode vai escrever para o valor
+     * (o gravador garante esse espaço no buffer antes de chamar encode).
+     */
+    int maxEncodedSize(T value);
+
+    /**
+     * Escreve o valor na posição atual do buffer.
+     */
+    void encode(T value, ByteBuffer out);
+
+    /**
+     * Lê um valor a partir da posição atual do buffer. Se os bytes não
+     * formam um valor válido (arquivo truncado), deve lançar
+     * BufferUnderflowException, que a carga transforma em IOException.
+     */
+    T decode(ByteBuffer in);
+}
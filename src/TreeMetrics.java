@@ -0,0 +1,308 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Métricas de operação de uma BinaryTree, ligadas por
+ * {@link BinaryTree#enableMetrics()}.
+ *
+ * Enquanto desligadas, o custo na árvore é ler um campo e compará-lo com
+ * null por operação. Ligadas, cada insert/remove/busca soma contadores
+ * (LongAdder e AtomicLongArray, seguros para leitura por outra thread,
+ * como a do JMX) e mede a latência com System.nanoTime.
+ *
+ * Leitura:
+ * - pull: {@link #snapshot()} devolve uma cópia imutável dos valores
+ * - JMX: {@link #register(String)} publica esta instância como MXBean
+ *
+ * As latências vão para histogramas log-lineares (8 faixas por potência
+ * de 2), então os percentis têm erro relativo de no máximo 12,5% e
+ * memória fixa, sem guardar amostras.
+ */
+public class TreeMetrics implements TreeMetricsMXBean {
+
+    private static final int NIVEIS = 64; // profundidades >= 63 caem na última posição
+
+    private final BinaryTree<?> tree;
+
+    private final LongAdder inserts = new LongAdder();
+    private final LongAdder removes = new LongAdder();
+    private final LongAdder successorRemovals = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder lookupHits = new LongAdder();
+    private final LongAdder comparisons = new LongAdder();
+    private final AtomicLongArray profundidades = new AtomicLongArray(NIVEIS);
+
+    private final Histograma latenciaBusca = new Histograma();
+    private final Histograma latenciaInsert = new Histograma();
+    private final Histograma latenciaRemove = new Histograma();
+
+    private ObjectName nome; // preenchido por register
+
+    TreeMetrics(BinaryTree<?> tree) {
+        this.tree = tree;
+    }
+
+
+    // ============================================================
+    //                 REGISTRO (chamado pela árvore)
+    // ============================================================
+    void recordInsert(int comparacoes, long nanos) {
+        inserts.increment();
+        comparisons.add(comparacoes);
+        latenciaInsert.record(nanos);
+    }
+
+    void recordRemove(int comparacoes, boolean sucessor, long nanos) {
+        removes.increment();
+        if (sucessor) successorRemovals.increment();
+        comparisons.add(comparacoes);
+        latenciaRemove.record(nanos);
+    }
+
+    /**
+     * @param nivel profundidade do valor encontrado, ou -1 se não encontrado
+     */
+    void recordLookup(int nivel, int comparacoes, long nanos) {
+        lookups.increment();
+        comparisons.add(comparacoes);
+        if (nivel >= 0) {
+            lookupHits.increment();
+            profundidades.incrementAndGet(Math.min(nivel, NIVEIS - 1));
+        }
+        latenciaBusca.record(nanos);
+    }
+
+
+    // ============================================================
+    //                         SNAPSHOT
+    // ============================================================
+    /**
+     * Percentis de latência (ns) de um tipo de operação.
+     */
+    public record Latencias(long count, long p50, long p90, long p99, long p999, long max) {
+    }
+
+    /**
+     * Cópia imutável das métricas em um instante.
+     * Cada contador é lido separadamente, então com escritas concorrentes
+     * os valores podem diferir entre si por algumas operações.
+     */
+    public record Snapshot(long inserts, long removes, long successorRemovals,
+                           long lookups, long lookupHits, long comparisons,
+                           int height, int size, long[] depthHistogram,
+                           Latencias lookupLatency, Latencias insertLatency, Latencias removeLatency) {
+
+        /**
+         * Média de comparações por operação (insert, remove ou busca).
+         */
+        public double comparisonsPerOperation() {
+            long ops = inserts + removes + lookups;
+            return ops == 0 ? 0 : (double) comparisons / ops;
+        }
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(getInserts(), getRemoves(), getSuccessorRemovals(),
+                getLookups(), getLookupHits(), getComparisons(),
+                getHeight(), getSize(), getDepthHistogram(),
+                latenciaBusca.latencias(), latenciaInsert.latencias(), latenciaRemove.latencias());
+    }
+
+
+    // ============================================================
+    //                            JMX
+    // ============================================================
+    /**
+     * Publica as métricas no MBeanServer da plataforma como
+     * "Arvore:type=BinaryTree,name=<nome>" (visível no JConsole/VisualVM).
+     */
+    public synchronized ObjectName register(String nomeArvore) throws JMException {
+        ObjectName novo = ObjectName.getInstance("Arvore:type=BinaryTree,name=" + ObjectName.quote(nomeArvore));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, novo);
+        nome = novo;
+        return novo;
+    }
+
+    /**
+     * Remove o registro feito por register (nada acontece se não houver).
+     */
+    public synchronized void unregister() throws JMException {
+        if (nome == null) return;
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(nome);
+        nome = null;
+    }
+
+
+    // ============================================================
+    //                     ATRIBUTOS DO MXBEAN
+    // ============================================================
+    @Override
+    public long getInserts() {
+        return inserts.sum();
+    }
+
+    @Override
+    public long getRemoves() {
+        return removes.sum();
+    }
+
+    @Override
+    public long getSuccessorRemovals() {
+        return successorRemovals.sum();
+    }
+
+    @Override
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    @Override
+    public long getLookupHits() {
+        return lookupHits.sum();
+    }
+
+    @Override
+    public long getComparisons() {
+        return comparisons.sum();
+    }
+
+    @Override
+    public int getHeight() {
+        return tree.height();
+    }
+
+    @Override
+    public int getSize() {
+        return tree.size();
+    }
+
+    @Override
+    public long[] getDepthHistogram() {
+        // corta as posições vazias do fim
+        int n = NIVEIS;
+        while (n > 0 && profundidades.get(n - 1) == 0) n--;
+        long[] copia = new long[n];
+        for (int i = 0; i < n; i++) copia[i] = profundidades.get(i);
+        return copia;
+    }
+
+    @Override
+    public long getLookupLatencyP50Nanos() {
+        return latenciaBusca.percentile(0.50);
+    }
+
+    @Override
+    public long getLookupLatencyP99Nanos() {
+        return latenciaBusca.percentile(0.99);
+    }
+
+    @Override
+    public long getInsertLatencyP50Nanos() {
+        return latenciaInsert.percentile(0.50);
+    }
+
+    @Override
+    public long getInsertLatencyP99Nanos() {
+        return latenciaInsert.percentile(0.99);
+    }
+
+    @Override
+    public long getRemoveLatencyP50Nanos() {
+        return latenciaRemove.percentile(0.50);
+    }
+
+    @Override
+    public long getRemoveLatencyP99Nanos() {
+        return latenciaRemove.percentile(0.99);
+    }
+
+    @Override
+    public void reset() {
+        inserts.reset();
+        removes.reset();
+        successorRemovals.reset();
+        lookups.reset();
+        lookupHits.reset();
+        comparisons.reset();
+        for (int i = 0; i < NIVEIS; i++) profundidades.set(i, 0);
+        latenciaBusca.reset();
+        latenciaInsert.reset();
+        latenciaRemove.reset();
+    }
+
+
+    // ============================================================
+    //                 HISTOGRAMA DE LATÊNCIA
+    // ============================================================
+    /**
+     * Histograma log-linear: valores < 8 têm uma faixa cada; acima disso,
+     * cada potência de 2 é dividida em 8 faixas de mesma largura.
+     */
+    private static class Histograma {
+        private static final int SUB = 3;           // 2^3 = 8 faixas por potência de 2
+        private static final int FAIXAS = (64 - SUB) << SUB;
+
+        private final AtomicLongArray contagens = new AtomicLongArray(FAIXAS);
+        private final LongAccumulator maximo = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            contagens.incrementAndGet(faixa(nanos));
+            maximo.accumulate(nanos);
+        }
+
+        private static int faixa(long v) {
+            if (v < (1 << SUB)) return (int) v;
+            int expoente = 63 - Long.numberOfLeadingZeros(v);
+            return ((expoente - SUB + 1) << SUB) + (int) ((v >>> (expoente - SUB)) & ((1 << SUB) - 1));
+        }
+
+        /**
+         * Maior valor que cai na faixa (os percentis são arredondados para cima).
+         */
+        private static long limiteSuperior(int faixa) {
+            if (faixa < (1 << SUB)) return faixa;
+            int expoente = (faixa >>> SUB) + SUB - 1;
+            long sub = faixa & ((1 << SUB) - 1);
+            long inicio = ((1L << SUB) + sub) << (expoente - SUB);
+            return inicio + (1L << (expoente - SUB)) - 1;
+        }
+
+        long percentile(double q) {
+            long total = 0;
+            long[] copia = new long[FAIXAS];
+            for (int i = 0; i < FAIXAS; i++) total += copia[i] = contagens.get(i);
+            return percentile(copia, total, q);
+        }
+
+        private long percentile(long[] copia, long total, double q) {
+            if (total == 0) return 0;
+            long alvo = Math.max(1, (long) Math.ceil(q * total));
+            long acumulado = 0;
+            for (int i = 0; i < FAIXAS; i++) {
+                acumulado += copia[i];
+                if (acumulado >= alvo) return Math.min(limiteSuperior(i), maximo.get());
+            }
+            return maximo.get();
+        }
+
+        Latencias latencias() {
+            long total = 0;
+            long[] copia = new long[FAIXAS];
+            for (int i = 0; i < FAIXAS; i++) total += copia[i] = contagens.get(i);
+            return new Latencias(total,
+                    percentile(copia, total, 0.50), percentile(copia, total, 0.90),
+                    percentile(copia, total, 0.99), percentile(copia, total, 0.999),
+                    maximo.get());
+        }
+
+        void reset() {
+            for (int i = 0; i < FAIXAS; i++) contagens.set(i, 0);
+            maximo.reset();
+        }
+    }
+}
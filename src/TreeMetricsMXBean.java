@@ -0,0 +1,44 @@
+/**
+ * Interface JMX das métricas de uma BinaryTree (ver TreeMetrics).
+ *
+ * Todos os valores são acumulados desde a criação (ou o último reset).
+ * Latências em nanossegundos; os percentis têm erro de até ~12,5%.
+ */
+public interface TreeMetricsMXBean {
+
+    long getInserts();
+
+    long getRemoves();
+
+    /** Removes que caíram no caso de 2 filhos (troca pelo sucessor). */
+    long getSuccessorRemovals();
+
+    /** Buscas feitas por contains e depth. */
+    long getLookups();
+
+    long getLookupHits();
+
+    /** Comparações feitas por insert, remove e buscas. */
+    long getComparisons();
+
+    int getHeight();
+
+    int getSize();
+
+    /** histogram[d] = buscas encontradas na profundidade d (a última posição acumula o resto). */
+    long[] getDepthHistogram();
+
+    long getLookupLatencyP50Nanos();
+
+    long getLookupLatencyP99Nanos();
+
+    long getInsertLatencyP50Nanos();
+
+    long getInsertLatencyP99Nanos();
+
+    long getRemoveLatencyP50Nanos();
+
+    long getRemoveLatencyP99Nanos();
+
+    void reset();
+}
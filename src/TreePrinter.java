@@ -1,5 +1,20 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
 public class TreePrinter {
 
+    private static final char[] RAMO_ESQUERDO = "├── ".toCharArray();
+    private static final char[] RAMO_DIREITO = "└── ".toCharArray();
+    private static final char[] CONTINUA = "│   ".toCharArray();
+    private static final char[] VAZIO = "    ".toCharArray();
+    private static final int LARGURA = 4; // cada nível ocupa 4 colunas no prefixo
+
     /**
      * Imprime uma árvore inteira a partir do seu objeto BinaryTree.
      * Usa a raiz da árvore como ponto inicial.
@@ -10,36 +25,348 @@ public class TreePrinter {
 
     /**
      * Imprime a árvore iniciando por um nó específico.
-     * 
+     * A saída é acumulada em blocos e escrita no console de uma vez por bloco.
      */
     public static <T> void printNode(BinaryTree.Node<T> root) {
-        // Chama a função recursiva com prefixo vazio e indicando que
-        // o nó raiz não é "esquerda" nem "direita".
-        print("", root, false);
+        ConsoleBuffer console = new ConsoleBuffer();
+        try {
+            render(root, console, Integer.MAX_VALUE, 0, Long.MAX_VALUE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // o console não lança IOException
+        }
+        console.flush();
+    }
+
+    /**
+     * Desenha a subárvore cuja raiz é o nó com o valor informado.
+     * Retorna o número de linhas escritas (0 se o valor não existir).
+     */
+    public static <T extends Comparable<T>> long renderSubtree(BinaryTree<T> tree, T value, Appendable out,
+                                                               int maxDepth, long offset, long limit)
+            throws IOException {
+        BinaryTree.Node<T> node = tree.find(value);
+        return node == null ? 0 : render(node, out, maxDepth, offset, limit);
     }
 
     /**
-     * Função recursiva que imprime cada nó da árvore em estilo ASCII.
+     * Desenha a árvore em estilo ASCII no destino (Writer, StringBuilder...).
+     *
+     * O prefixo de cada linha (os ramos dos níveis anteriores) fica em um
+     * único vetor de chars reaproveitado: ao descer um nível são escritas
+     * 4 colunas, ao voltar basta usar um comprimento menor. Não há recursão
+     * nem concatenação de Strings por nó.
+     *
+     * Nós de árvores multiset mostram a contagem, como "Ana (x3)", e as
+     * lápides da remoção lazy aparecem como "Ana (removido)".
      *
-     * @param prefix  Prefixo visual que define o espaçamento e os ramos anteriores.
-     * @param node    Nó atual a ser impresso.
-     * @param isLeft  Indica se o nó atual é filho da esquerda.
-     */
-    private static <T> void print(String prefix, BinaryTree.Node<T> node, boolean isLeft) {
-        // Caso base: se o nó é nulo, nada é impresso.
-        if (node == null) return;
-
-        // Imprime o prefixo + o símbolo correto + o valor do nó.
-        // ├── é usado para nó da esquerda
-        // └── é usado para nó da direita
-        System.out.println(prefix + (isLeft ? "├── " : "└── ") + node.value);
-
-        // Chamada recursiva para o filho esquerdo.
-        // Se é da esquerda, adiciona "│   " para mostrar continuidade.
-        // Se é da direita, adiciona "    " para manter o alinhamento.
-        print(prefix + (isLeft ? "│   " : "    "), node.left, true);
-
-        // Chamada recursiva para o filho direito.
-        print(prefix + (isLeft ? "│   " : "    "), node.right, false);
+     * @param maxDepth  nós mais fundos que isso não são desenhados; o último
+     *                  nível mostrado indica quantos descendentes foram omitidos
+     * @param offset    quantidade de linhas a pular (paginação)
+     * @param limit     quantidade máxima de linhas a escrever
+     * @return          número de linhas escritas
+     */
+    public static <T> long render(BinaryTree.Node<T> root, Appendable out, int maxDepth, long offset, long limit)
+            throws IOException {
+        if (root == null || limit <= 0) return 0;
+
+        // pilha explícita: nó, nível e se é filho esquerdo
+        int capacidade = BinaryTree.heightOf(root) + 2;
+        @SuppressWarnings("unchecked")
+        BinaryTree.Node<T>[] nos = (BinaryTree.Node<T>[]) new BinaryTree.Node[capacidade];
+        int[] niveis = new int[capacidade];
+        boolean[] esquerdos = new boolean[capacidade];
+        char[] prefixo = new char[LARGURA * capacidade];
+
+        int topo = 0;
+        nos[topo] = root;
+        niveis[topo] = 0;
+        esquerdos[topo++] = false; // a raiz não é "esquerda" nem "direita"
+
+        // o tamanho da subárvore só é o número de linhas se cada nó tem uma
+        // única ocorrência (numa árvore multiset todos os nós têm contagem)
+        boolean semLimiteDeNivel = maxDepth == Integer.MAX_VALUE;
+        boolean pulaSubarvores = semLimiteDeNivel && !(root instanceof BinaryTree.CountedNode);
+        long pular = offset, escritas = 0;
+        while (topo > 0 && escritas < limit) {
+            BinaryTree.Node<T> node = nos[--topo];
+            int nivel = niveis[topo];
+            boolean isLeft = esquerdos[topo];
+
+            // sem limite de nível cada nó gera uma linha: subárvores que caem
+            // inteiras dentro do trecho pulado nem são visitadas
+            if (pulaSubarvores && pular >= node.size) {
+                pular -= node.size;
+                continue;
+            }
+
+            // ├── é usado para nó da esquerda
+            // └── é usado para nó da direita
+            if (pular > 0) {
+                pular--;
+            } else {
+                write(out, prefixo, LARGURA * nivel);
+                write(out, isLeft ? RAMO_ESQUERDO : RAMO_DIREITO, LARGURA);
+                out.append(String.valueOf(node.value));
+                int ocorrencias = BinaryTree.countOf(node);
+                if (ocorrencias > 1)
+                    out.append(" (x").append(String.valueOf(ocorrencias)).append(')');
+                else if (ocorrencias == 0)
+                    out.append(" (removido)");
+                if (nivel == maxDepth && node.size > ocorrencias)
+                    out.append(" (+").append(String.valueOf(node.size - ocorrencias)).append(')');
+                out.append('\n');
+                escritas++;
+            }
+            if (nivel == maxDepth) continue;
+
+            // Se é da esquerda, adiciona "│   " para mostrar continuidade.
+            // Se é da direita, adiciona "    " para manter o alinhamento.
+            System.arraycopy(isLeft ? CONTINUA : VAZIO, 0, prefixo, LARGURA * nivel, LARGURA);
+
+            if (topo + 2 > nos.length) { // só se a árvore mudou durante o desenho
+                nos = Arrays.copyOf(nos, nos.length * 2);
+                niveis = Arrays.copyOf(niveis, niveis.length * 2);
+                esquerdos = Arrays.copyOf(esquerdos, esquerdos.length * 2);
+                prefixo = Arrays.copyOf(prefixo, prefixo.length * 2);
+            }
+
+            // empilha a direita antes para que a esquerda saia primeiro
+            if (node.right != null) {
+                nos[topo] = node.right;
+                niveis[topo] = nivel + 1;
+                esquerdos[topo++] = false;
+            }
+            if (node.left != null) {
+                nos[topo] = node.left;
+                niveis[topo] = nivel + 1;
+                esquerdos[topo++] = true;
+            }
+        }
+        return escritas;
+    }
+
+
+    // ============================================================
+    //                        EXPORTAÇÃO
+    // ============================================================
+    /**
+     * Exporta no formato DOT do Graphviz (ex.: dot -Tsvg arvore.dot).
+     * Os nós recebem ids em pré-ordem; o filho direito de um nó i tem
+     * id i + 1 + tamanho(esquerda), então nenhuma tabela de ids é necessária.
+     * (Numa árvore multiset os tamanhos contam ocorrências: o nó i com
+     * contagem c ocupa os ids i .. i + c - 1, e os ids deixam de ser seguidos.
+     * Lápides da remoção lazy não entram nos tamanhos; se houver alguma,
+     * os pesos das subárvores são recalculados numa tabela, ver pesos.)
+     */
+    public static <T> void toDot(BinaryTree.Node<T> root, Appendable out) throws IOException {
+        out.append("digraph BinaryTree {\n  node [shape=box];\n");
+        forEachPreOrder(root, (node, id, esquerdo, direito) -> {
+            out.append("  n").append(Integer.toString(id)).append(" [label=\"");
+            escapeDot(out, String.valueOf(node.value));
+            int ocorrencias = BinaryTree.countOf(node);
+            if (ocorrencias > 1) out.append(" (x").append(Integer.toString(ocorrencias)).append(')');
+            else if (ocorrencias == 0) out.append(" (removido)");
+            out.append("\"];\n");
+            if (esquerdo >= 0)
+                out.append("  n").append(Integer.toString(id)).append(" -> n")
+                        .append(Integer.toString(esquerdo)).append(" [label=\"L\"];\n");
+            if (direito >= 0)
+                out.append("  n").append(Integer.toString(id)).append(" -> n")
+                        .append(Integer.toString(direito)).append(" [label=\"R\"];\n");
+        });
+        out.append("}\n");
+    }
+
+    /**
+     * Exporta em JSON "plano" (sem aninhamento, então não depende da altura):
+     * {"root":0,"nodes":[{"id":0,"value":"...","left":1,"right":null},...]}
+     * Numa árvore multiset cada nó tem também "count".
+     */
+    public static <T> void toJson(BinaryTree.Node<T> root, Appendable out) throws IOException {
+        out.append("{\"root\":").append(root == null ? "null" : "0").append(",\"nodes\":[");
+        forEachPreOrder(root, (node, id, esquerdo, direito) -> {
+            if (id > 0) out.append(',');
+            out.append("\n{\"id\":").append(Integer.toString(id)).append(",\"value\":\"");
+            escapeJson(out, String.valueOf(node.value));
+            out.append('"');
+            if (node instanceof BinaryTree.CountedNode)
+                out.append(",\"count\":").append(Integer.toString(BinaryTree.countOf(node)));
+            out.append(",\"left\":").append(esquerdo < 0 ? "null" : Integer.toString(esquerdo));
+            out.append(",\"right\":").append(direito < 0 ? "null" : Integer.toString(direito)).append('}');
+        });
+        out.append("\n]}\n");
+    }
+
+    /**
+     * Visitante usado pelas exportações: recebe o nó, o seu id e os ids
+     * dos filhos (-1 quando não há filho).
+     */
+    private interface VisitanteComIds<T> {
+        void visit(BinaryTree.Node<T> node, int id, int esquerdo, int direito) throws IOException;
+    }
+
+    /**
+     * Pré-ordem com pilha explícita, calculando os ids pelos tamanhos das
+     * subárvores (ou pelos pesos, quando há lápides).
+     */
+    private static <T> void forEachPreOrder(BinaryTree.Node<T> root, VisitanteComIds<T> visitante)
+            throws IOException {
+        if (root == null) return;
+
+        @SuppressWarnings("unchecked")
+        BinaryTree.Node<T>[] nos = (BinaryTree.Node<T>[]) new BinaryTree.Node[BinaryTree.heightOf(root) + 2];
+        int[] ids = new int[nos.length];
+        Map<BinaryTree.Node<T>, Integer> pesos = pesos(root);
+        int topo = 0;
+        nos[topo] = root;
+        ids[topo++] = 0;
+
+        while (topo > 0) {
+            BinaryTree.Node<T> node = nos[--topo];
+            int id = ids[topo];
+            int proximo = id + Math.max(1, BinaryTree.countOf(node));
+            int esquerdo = node.left == null ? -1 : proximo;
+            int esquerda = pesos == null || node.left == null ? BinaryTree.sizeOf(node.left) : pesos.get(node.left);
+            int direito = node.right == null ? -1 : proximo + esquerda;
+            visitante.visit(node, id, esquerdo, direito);
+
+            if (topo + 2 > nos.length) {
+                nos = Arrays.copyOf(nos, nos.length * 2);
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            if (node.right != null) {
+                nos[topo] = node.right;
+                ids[topo++] = direito;
+            }
+            if (node.left != null) {
+                nos[topo] = node.left;
+                ids[topo++] = esquerdo;
+            }
+        }
+    }
+
+    /**
+     * Uma lápide (contagem 0) não conta no tamanho da subárvore, então
+     * ids calculados pelo tamanho se repetiriam. Se houver alguma, devolve
+     * o peso de cada subárvore (ocorrências + lápides, que ocupam um id
+     * cada); senão, null e os tamanhos servem. A tabela só é montada nas
+     * árvores com remoção lazy que ainda têm lápides.
+     */
+    private static <T> Map<BinaryTree.Node<T>, Integer> pesos(BinaryTree.Node<T> root) {
+        if (!(root instanceof BinaryTree.CountedNode)) return null;
+
+        // pré-ordem guardando os nós; ao contrário, os filhos vêm antes do pai
+        List<BinaryTree.Node<T>> ordem = new ArrayList<>();
+        List<BinaryTree.Node<T>> pendentes = new ArrayList<>();
+        boolean temLapide = false;
+        pendentes.add(root);
+        while (!pendentes.isEmpty()) {
+            BinaryTree.Node<T> node = pendentes.remove(pendentes.size() - 1);
+            ordem.add(node);
+            temLapide |= BinaryTree.countOf(node) == 0;
+            if (node.right != null) pendentes.add(node.right);
+            if (node.left != null) pendentes.add(node.left);
+        }
+        if (!temLapide) return null;
+
+        Map<BinaryTree.Node<T>, Integer> pesos = new IdentityHashMap<>(ordem.size() * 2);
+        for (int i = ordem.size() - 1; i >= 0; i--) {
+            BinaryTree.Node<T> node = ordem.get(i);
+            int peso = Math.max(1, BinaryTree.countOf(node));
+            if (node.left != null) peso += pesos.get(node.left);
+            if (node.right != null) peso += pesos.get(node.right);
+            pesos.put(node, peso);
+        }
+        return pesos;
+    }
+
+    /**
+     * Escreve o texto para um rótulo DOT entre aspas: aspas e barras
+     * escapadas, quebra de linha como \n (quebra de linha no rótulo do
+     * Graphviz) e os demais caracteres de controle trocados por espaço
+     * (o DOT não decodifica os escapes unicode do JSON, e \r ou \l
+     * mudariam o alinhamento da linha).
+     */
+    private static void escapeDot(Appendable out, String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                default -> out.append(c < 0x20 ? ' ' : c);
+            }
+        }
+    }
+
+    /**
+     * Escreve o texto para uma string JSON: aspas, barras e caracteres de
+     * controle escapados (os sem forma curta, em escape unicode).
+     */
+    private static void escapeJson(Appendable out, String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) out.append(String.format("\\u%04x", (int) c));
+                    else out.append(c);
+                }
+            }
+        }
+    }
+
+
+    // ============================================================
+    //                     ESCRITA EM BLOCO
+    // ============================================================
+    /**
+     * Escreve um trecho de um vetor de chars sem criar Strings intermediárias
+     * quando o destino permite.
+     */
+    private static void write(Appendable out, char[] c, int len) throws IOException {
+        if (out instanceof Writer w) w.write(c, 0, len);
+        else if (out instanceof StringBuilder sb) sb.append(c, 0, len);
+        else for (int i = 0; i < len; i++) out.append(c[i]);
+    }
+
+    /**
+     * Acumula a saída e só escreve no System.out a cada bloco (em vez de um
+     * println sincronizado por nó), respeitando a codificação do console.
+     */
+    private static class ConsoleBuffer implements Appendable {
+        private static final int BLOCO = 1 << 14;
+        private final StringBuilder sb = new StringBuilder(BLOCO + 256);
+
+        @Override
+        public Appendable append(CharSequence csq) {
+            sb.append(csq);
+            if (sb.length() >= BLOCO) flush();
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            sb.append(csq, start, end);
+            if (sb.length() >= BLOCO) flush();
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            sb.append(c);
+            if (sb.length() >= BLOCO) flush();
+            return this;
+        }
+
+        void flush() {
+            System.out.print(sb);
+            System.out.flush();
+            sb.setLength(0);
+        }
     }
 }
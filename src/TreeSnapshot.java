@@ -0,0 +1,304 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Grava e carrega uma BinaryTree em um arquivo binário compacto.
+ *
+ * Formato:
+ * - cabeçalho: MAGIC (int), VERSAO (int), opções (int: bit 0 = árvore
+ *   multiset, bits 1-2 = ordinal do Balancing), quantidade de nós (int)
+ * - nós em pré-ordem; cada um é um byte de flags (tem filho esquerdo /
+ *   tem filho direito) seguido do valor, escrito pelo TreeCodec, e, nas
+ *   árvores multiset, da contagem de ocorrências (int)
+ * Arquivos das versões 1 (sem opções e sem contagens) e 2 (sem o
+ * balanceamento) continuam sendo lidos.
+ *
+ * A forma gravada só vale para o balanceamento com que foi montada: carregar
+ * como AVL uma árvore NONE degenerada daria uma "AVL" de altura n. Por isso
+ * a carga rejeita um balanceamento diferente do gravado e, nos arquivos
+ * antigos (que não o gravam), confere a regra do AVL ao recalcular as
+ * alturas e, se ela falhar, reconstrói a árvore balanceada.
+ *
+ * Como a estrutura é gravada como está, a carga não chama compareTo:
+ * os nós são religados direto a partir da pré-ordem, e altura/tamanho
+ * são recalculados numa passada de trás para frente. A leitura usa um
+ * arquivo mapeado em memória (limitado a 2 GB por snapshot).
+ */
+public class TreeSnapshot {
+
+    private static final int MAGIC = 0x41525642; // "ARVB"
+    private static final int VERSAO = 3;
+
+    private static final int MULTISET = 1;      // bit das opções do cabeçalho
+    private static final int BALANCEAMENTO = 1; // deslocamento do Balancing nas opções
+    private static final int POSICAO_NOS = 12; // posição da quantidade de nós no cabeçalho
+
+    private static final byte TEM_ESQUERDO = 1;
+    private static final byte TEM_DIREITO = 2;
+
+    private static final int TAMANHO_BUFFER = 1 << 16;
+
+    private TreeSnapshot() {
+    }
+
+
+    // ============================================================
+    //                          GRAVAÇÃO
+    // ============================================================
+    /**
+     * Grava a árvore no arquivo (sobrescreve se já existir). A árvore não é
+     * alterada. Com remoção lazy e lápides pendentes, grava só os nós vivos,
+     * na forma balanceada que compact() daria a eles (uma lápide com dois
+     * filhos não tem como sair da forma atual sem reorganizar os filhos).
+     */
+    public static <T extends Comparable<T>> void write(BinaryTree<T> tree, Path arquivo, TreeCodec<T> codec)
+            throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            boolean multiset = tree.isMultiset();
+            Gravador<T> gravador = new Gravador<>(canal, codec, multiset);
+            int opcoes = (multiset ? MULTISET : 0) | tree.getBalancing().ordinal() << BALANCEAMENTO;
+            gravador.buffer.putInt(MAGIC).putInt(VERSAO).putInt(opcoes)
+                    .putInt(tree.size()); // no multiset size conta ocorrências: corrigido no fim
+
+            if (tree.tombstones() == 0) writeShape(tree, gravador);
+            else writeLive(tree, gravador);
+
+            flush(canal, gravador.buffer);
+            if (multiset) canal.write(ByteBuffer.allocate(4).putInt(0, gravador.nos), POSICAO_NOS);
+        }
+    }
+
+    /**
+     * Pré-ordem da forma atual, com pilha explícita dos filhos direitos pendentes.
+     */
+    private static <T extends Comparable<T>> void writeShape(BinaryTree<T> tree, Gravador<T> gravador)
+            throws IOException {
+        @SuppressWarnings("unchecked")
+        BinaryTree.Node<T>[] pilha = (BinaryTree.Node<T>[]) new BinaryTree.Node[tree.height() + 2];
+        int topo = 0;
+        BinaryTree.Node<T> node = tree.getRoot();
+
+        while (node != null) {
+            gravador.write(node, node.left != null, node.right != null);
+
+            if (node.right != null) pilha[topo++] = node.right;
+            if (node.left != null) node = node.left;
+            else node = (topo > 0) ? pilha[--topo] : null;
+        }
+    }
+
+    /**
+     * Só os nós vivos, em pré-ordem da árvore balanceada sobre eles: o nó
+     * do meio de cada intervalo [ini, fim] da lista in-ordem é a raiz, com
+     * os dois lados como subárvores. A pilha guarda intervalos pendentes
+     * (O(log n)).
+     */
+    private static <T extends Comparable<T>> void writeLive(BinaryTree<T> tree, Gravador<T> gravador)
+            throws IOException {
+        List<BinaryTree.Node<T>> vivos = new ArrayList<>();
+        @SuppressWarnings("unchecked")
+        BinaryTree.Node<T>[] pilhaNos = (BinaryTree.Node<T>[]) new BinaryTree.Node[tree.height() + 1];
+        int topo = 0;
+        BinaryTree.Node<T> node = tree.getRoot();
+        while (node != null || topo > 0) {
+            while (node != null) {
+                pilhaNos[topo++] = node;
+                node = node.left;
+            }
+            node = pilhaNos[--topo];
+            if (BinaryTree.countOf(node) > 0) vivos.add(node);
+            node = node.right;
+        }
+
+        int[] pilha = new int[2 * 33]; // pares ini, fim: até log2(n) + 2 pendentes
+        topo = 0;
+        if (!vivos.isEmpty()) {
+            pilha[topo++] = 0;
+            pilha[topo++] = vivos.size() - 1;
+        }
+        while (topo > 0) {
+            int fim = pilha[--topo], ini = pilha[--topo];
+            int meio = (ini + fim) >>> 1;
+            gravador.write(vivos.get(meio), ini < meio, meio < fim);
+            if (meio < fim) {
+                pilha[topo++] = meio + 1;
+                pilha[topo++] = fim;
+            }
+            if (ini < meio) {
+                pilha[topo++] = ini;
+                pilha[topo++] = meio - 1;
+            }
+        }
+    }
+
+    /**
+     * Buffer de saída e contagem de nós gravados.
+     */
+    private static final class Gravador<T> {
+        private final FileChannel canal;
+        private final TreeCodec<T> codec;
+        private final boolean multiset;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANHO_BUFFER);
+        int nos;
+
+        Gravador(FileChannel canal, TreeCodec<T> codec, boolean multiset) {
+            this.canal = canal;
+            this.codec = codec;
+            this.multiset = multiset;
+        }
+
+        void write(BinaryTree.Node<T> node, boolean temEsquerdo, boolean temDireito) throws IOException {
+            int necessario = 1 + codec.maxEncodedSize(node.value) + 4;
+            if (buffer.remaining() < necessario) {
+                flush(canal, buffer);
+                if (buffer.capacity() < necessario) // valor maior que o buffer inteiro
+                    buffer = ByteBuffer.allocateDirect(necessario);
+            }
+
+            byte flags = 0;
+            if (temEsquerdo) flags |= TEM_ESQUERDO;
+            if (temDireito) flags |= TEM_DIREITO;
+            buffer.put(flags);
+            codec.encode(node.value, buffer);
+            if (multiset) buffer.putInt(BinaryTree.countOf(node));
+            nos++;
+        }
+    }
+
+    private static void flush(FileChannel canal, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            canal.write(buffer);
+        buffer.clear();
+    }
+
+
+    // ============================================================
+    //                          CARGA
+    // ============================================================
+    /**
+     * Carrega um snapshot gravado por write, mantendo a mesma forma da árvore.
+     * O balanceamento precisa ser o da árvore gravada (IOException se não
+     * for).
+     */
+    public static <T extends Comparable<T>> BinaryTree<T> read(Path arquivo, TreeCodec<T> codec,
+                                                               BinaryTree.Balancing balancing) throws IOException {
+        return read(arquivo, codec, balancing, null);
+    }
+
+    /**
+     * Carrega um snapshot em uma árvore que usa prefixos de ordenação
+     * (ver BinaryTree(Balancing, ToLongFunction)); o prefixo de cada nó é
+     * recalculado na carga.
+     *
+     * Arquivo truncado ou com estrutura inconsistente (quantidade de nós
+     * impossível, filho direito sem ancestral que o aguarde, filho
+     * anunciado que não veio) gera IOException("snapshot corrompido").
+     */
+    public static <T extends Comparable<T>> BinaryTree<T> read(Path arquivo, TreeCodec<T> codec,
+                                                               BinaryTree.Balancing balancing,
+                                                               ToLongFunction<? super T> prefixo) throws IOException {
+        MappedByteBuffer in;
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            if (canal.size() > Integer.MAX_VALUE)
+                throw new IOException("snapshot maior que 2 GB: " + arquivo);
+            in = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+        }
+
+        if (in.remaining() < 8 || in.getInt() != MAGIC)
+            throw new IOException("arquivo não é um snapshot de árvore: " + arquivo);
+        int versao = in.getInt();
+        if (versao < 1 || versao > VERSAO)
+            throw new IOException("versão de snapshot não suportada: " + versao);
+        if (in.remaining() < (versao > 1 ? 8 : 4)) // v1: só a quantidade de nós; v2 em diante: opções também
+            throw corrompido();
+
+        int opcoes = versao > 1 ? in.getInt() : 0;
+        boolean multiset = (opcoes & MULTISET) != 0;
+        if (versao >= 3) {
+            int gravado = opcoes >>> BALANCEAMENTO & 3;
+            if (gravado >= BinaryTree.Balancing.values().length)
+                throw corrompido();
+            if (gravado != balancing.ordinal())
+                throw new IOException("snapshot gravado com balanceamento " + BinaryTree.Balancing.values()[gravado]
+                        + ", carregado como " + balancing);
+        }
+        int n = in.getInt();
+        if (n < 0 || n > in.remaining()) // cada nó ocupa ao menos o byte de flags
+            throw corrompido();
+
+        try {
+            return read(in, n, codec, new BinaryTree<T>(balancing, prefixo, multiset));
+        } catch (BufferUnderflowException e) { // arquivo acabou no meio de um nó
+            throw corrompido();
+        }
+    }
+
+    private static IOException corrompido() {
+        return new IOException("snapshot corrompido");
+    }
+
+    /**
+     * Lê os n nós (já depois do cabeçalho) e religa a árvore.
+     */
+    private static <T extends Comparable<T>> BinaryTree<T> read(ByteBuffer in, int n, TreeCodec<T> codec,
+                                                                BinaryTree<T> tree) throws IOException {
+        boolean multiset = tree.isMultiset();
+        @SuppressWarnings("unchecked")
+        BinaryTree.Node<T>[] preOrdem = (BinaryTree.Node<T>[]) new BinaryTree.Node[n];
+        @SuppressWarnings("unchecked")
+        BinaryTree.Node<T>[] pendentes = (BinaryTree.Node<T>[]) new BinaryTree.Node[Math.max(n, 1)];
+        int topo = 0;
+
+        // religa os nós: depois de X vem o filho esquerdo de X (se houver);
+        // senão, o filho direito do ancestral mais próximo que ainda o aguarda
+        BinaryTree.Node<T> anterior = null;
+        boolean anteriorTemEsquerdo = false;
+        for (int i = 0; i < n; i++) {
+            byte flags = in.get();
+            BinaryTree.Node<T> node = tree.newNode(codec.decode(in));
+            if (multiset) {
+                int ocorrencias = in.getInt();
+                if (ocorrencias < 1)
+                    throw new IOException("contagem inválida no snapshot: " + ocorrencias);
+                ((BinaryTree.CountedNode<T>) node).count = ocorrencias;
+            }
+            preOrdem[i] = node;
+
+            if (anterior != null) {
+                if (anteriorTemEsquerdo) anterior.left = node;
+                else if (topo == 0) throw corrompido(); // nenhum ancestral aguarda um filho direito
+                else pendentes[--topo].right = node;
+            }
+            if ((flags & TEM_DIREITO) != 0) pendentes[topo++] = node;
+
+            anterior = node;
+            anteriorTemEsquerdo = (flags & TEM_ESQUERDO) != 0;
+        }
+        if (topo > 0 || anteriorTemEsquerdo) // filhos anunciados que não vieram
+            throw corrompido();
+
+        // na pré-ordem invertida os filhos vêm antes dos pais
+        boolean avl = true;
+        for (int i = n - 1; i >= 0; i--) {
+            BinaryTree.Node<T> node = preOrdem[i];
+            BinaryTree.update(node);
+            avl &= Math.abs(BinaryTree.heightOf(node.left) - BinaryTree.heightOf(node.right)) <= 1;
+        }
+
+        tree.replaceRoot(n == 0 ? null : preOrdem[0]);
+        if (!avl && tree.getBalancing() == BinaryTree.Balancing.AVL)
+            tree.rebuild(); // arquivo antigo, de uma árvore que não era AVL
+        return tree;
+    }
+}
@@ -0,0 +1,262 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Percurso preguiçoso de uma BinaryTree, que funciona ao mesmo tempo
+ * como Iterator e como Spliterator.
+ *
+ * Usa uma pilha explícita (vetor) em vez de recursão. Cada entrada da pilha
+ * é de um de dois tipos:
+ * - "subárvore": ainda precisa ser expandida conforme a ordem do percurso
+ * - "valor": o valor do nó está pronto para ser entregue
+ *
+ * A sequência restante é a concatenação das entradas do topo para a base,
+ * o que permite dividir o trabalho (trySplit) ao longo das subárvores:
+ * tudo acima da base vai para o novo spliterator, a base fica com este.
+ *
+ * Não aloca nada por elemento; a pilha é dimensionada pela altura da árvore.
+ * Como cada nó conhece o tamanho da sua subárvore, o tamanho restante é
+ * sempre exato (SIZED/SUBSIZED), inclusive após as divisões.
+ * Não detecta modificações concorrentes na árvore.
+ *
+ * Nós de árvores multiset entregam o valor uma vez por ocorrência; a
+ * entrada "valor" só sai da pilha depois da última. Lápides (nós com
+ * contagem 0, da remoção lazy) são puladas, e subárvores só de lápides
+ * (tamanho 0) nem são empilhadas.
+ *
+ * Em consultas por intervalo (só in-ordem) as subárvores que estão
+ * inteiramente fora dos limites nem chegam a ser empilhadas; nesse caso
+ * o tamanho restante passa a ser uma estimativa.
+ */
+class TreeSpliterator<T extends Comparable<T>> implements Iterator<T>, Spliterator<T> {
+
+    private final BinaryTree.Traversal ordem;
+    private final T de, ate;                    // limites do intervalo (null = sem limite)
+    private final boolean deInclusivo, ateInclusivo;
+    private final boolean limitado;
+    private BinaryTree.Node<T>[] nos;  // pilha de nós
+    private boolean[] soValor;         // true = entrada do tipo "valor"
+    private int topo;                  // quantidade de entradas na pilha
+    private int entregues;             // ocorrências já entregues do valor do topo (multiset)
+    private long restante;             // quantidade exata de valores restantes
+
+    TreeSpliterator(BinaryTree.Node<T> raiz, BinaryTree.Traversal ordem) {
+        this(raiz, ordem, null, false, null, false, BinaryTree.sizeOf(raiz));
+    }
+
+    /**
+     * Percurso in-ordem restrito ao intervalo [de, ate] (cada limite pode ser
+     * exclusivo ou null). {@code tamanho} é a quantidade de valores no intervalo.
+     */
+    TreeSpliterator(BinaryTree.Node<T> raiz, T de, boolean deInclusivo,
+                    T ate, boolean ateInclusivo, long tamanho) {
+        this(raiz, BinaryTree.Traversal.IN_ORDER, de, deInclusivo, ate, ateInclusivo, tamanho);
+    }
+
+    @SuppressWarnings("unchecked")
+    private TreeSpliterator(BinaryTree.Node<T> raiz, BinaryTree.Traversal ordem, T de, boolean deInclusivo,
+                            T ate, boolean ateInclusivo, long tamanho) {
+        this.ordem = ordem;
+        this.de = de;
+        this.deInclusivo = deInclusivo;
+        this.ate = ate;
+        this.ateInclusivo = ateInclusivo;
+        this.limitado = de != null || ate != null;
+        int capacidade = 2 * (BinaryTree.heightOf(raiz) + 2);
+        this.nos = (BinaryTree.Node<T>[]) new BinaryTree.Node[capacidade];
+        this.soValor = new boolean[capacidade];
+        this.restante = tamanho;
+        pushSubtree(raiz);
+    }
+
+    /**
+     * Usado pelo trySplit: herda ordem e limites do spliterator original.
+     */
+    private TreeSpliterator(TreeSpliterator<T> origem, BinaryTree.Node<T>[] nos,
+                            boolean[] soValor, int topo, int entregues, long restante) {
+        this.ordem = origem.ordem;
+        this.de = origem.de;
+        this.deInclusivo = origem.deInclusivo;
+        this.ate = origem.ate;
+        this.ateInclusivo = origem.ateInclusivo;
+        this.limitado = origem.limitado;
+        this.nos = nos;
+        this.soValor = soValor;
+        this.topo = topo;
+        this.entregues = entregues;
+        this.restante = restante;
+    }
+
+
+    // ============================================================
+    //                       PILHA EXPLÍCITA
+    // ============================================================
+    private void push(BinaryTree.Node<T> node, boolean valor) {
+        if (topo == nos.length) { // só acontece se a árvore mudou durante o percurso
+            nos = Arrays.copyOf(nos, topo * 2);
+            soValor = Arrays.copyOf(soValor, topo * 2);
+        }
+        nos[topo] = node;
+        soValor[topo] = valor;
+        topo++;
+    }
+
+    private void pushSubtree(BinaryTree.Node<T> node) {
+        if (BinaryTree.sizeOf(node) > 0) push(node, false); // null ou só lápides
+    }
+
+    /**
+     * Substitui a subárvore do topo pelas suas partes, empilhadas em ordem
+     * inversa para que a primeira parte fique no topo.
+     */
+    private void expand() {
+        BinaryTree.Node<T> node = nos[--topo];
+        nos[topo] = null;
+
+        if (limitado) {
+            expandInRange(node);
+            return;
+        }
+
+        switch (ordem) {
+            case IN_ORDER -> {          // esquerda, raiz, direita
+                pushSubtree(node.right);
+                push(node, true);
+                pushSubtree(node.left);
+            }
+            case PRE_ORDER -> {         // raiz, esquerda, direita
+                pushSubtree(node.right);
+                pushSubtree(node.left);
+                push(node, true);
+            }
+            case POST_ORDER -> {        // esquerda, direita, raiz
+                push(node, true);
+                pushSubtree(node.right);
+                pushSubtree(node.left);
+            }
+        }
+    }
+
+
+    /**
+     * Expansão in-ordem com poda: como esquerda <= nó <= direita, se o nó
+     * está abaixo do início a subárvore esquerda inteira também está (e
+     * simetricamente para o fim), então ela não é empilhada.
+     */
+    private void expandInRange(BinaryTree.Node<T> node) {
+        boolean depoisDoInicio = de == null || (deInclusivo
+                ? node.value.compareTo(de) >= 0
+                : node.value.compareTo(de) > 0);
+        boolean antesDoFim = ate == null || (ateInclusivo
+                ? node.value.compareTo(ate) <= 0
+                : node.value.compareTo(ate) < 0);
+
+        if (antesDoFim) pushSubtree(node.right);
+        if (depoisDoInicio && antesDoFim) push(node, true);
+        if (depoisDoInicio) pushSubtree(node.left);
+    }
+
+
+    // ============================================================
+    //                          ITERATOR
+    // ============================================================
+    @Override
+    public boolean hasNext() {
+        // expande subárvores até que o topo seja um valor vivo
+        while (topo > 0) {
+            if (!soValor[topo - 1]) expand();
+            else if (BinaryTree.countOf(nos[topo - 1]) == 0) nos[--topo] = null; // lápide
+            else break;
+        }
+        return topo > 0;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) throw new NoSuchElementException();
+
+        BinaryTree.Node<T> node = nos[topo - 1];
+        if (++entregues >= BinaryTree.countOf(node)) {
+            nos[--topo] = null;
+            entregues = 0;
+        }
+        if (restante > 0) restante--;
+        return node.value;
+    }
+
+
+    // ============================================================
+    //                         SPLITERATOR
+    // ============================================================
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (!hasNext()) return false;
+        action.accept(next());
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        while (hasNext())
+            action.accept(next());
+    }
+
+    /**
+     * Divide ao longo das subárvores: o prefixo (entradas acima da base)
+     * vai para o novo spliterator; a base continua com este.
+     */
+    @Override
+    public Spliterator<T> trySplit() {
+        if (topo == 1 && !soValor[0])
+            expand(); // uma única subárvore: abre em partes antes de dividir
+        if (topo < 2) return null;
+
+        int n = topo - 1;
+        BinaryTree.Node<T>[] prefixo = Arrays.copyOf(nos, nos.length);
+        boolean[] prefixoValor = Arrays.copyOf(soValor, soValor.length);
+
+        // o prefixo são as entradas 1..topo-1; desloca para o início do vetor
+        System.arraycopy(prefixo, 1, prefixo, 0, n);
+        System.arraycopy(prefixoValor, 1, prefixoValor, 0, n);
+        prefixo[n] = null;
+
+        // este fica só com a base; o valor do topo, talvez já entregue em
+        // parte, foi para o prefixo
+        Arrays.fill(nos, 1, topo, null);
+        topo = 1;
+        int entreguesPrefixo = entregues;
+        entregues = 0;
+
+        long tamanhoBase;
+        if (soValor[0]) tamanhoBase = BinaryTree.countOf(nos[0]);
+        else if (limitado) tamanhoBase = restante >>> 1; // com poda o tamanho é só estimado
+        else tamanhoBase = BinaryTree.sizeOf(nos[0]);
+
+        long tamanhoPrefixo = restante - tamanhoBase;
+        restante = tamanhoBase;
+        return new TreeSpliterator<>(this, prefixo, prefixoValor, n, entreguesPrefixo, tamanhoPrefixo);
+    }
+
+    @Override
+    public long estimateSize() {
+        return restante;
+    }
+
+    @Override
+    public int characteristics() {
+        int c = ORDERED | NONNULL;
+        if (!limitado) c |= SIZED | SUBSIZED;
+        if (ordem == BinaryTree.Traversal.IN_ORDER) c |= SORTED;
+        return c;
+    }
+
+    @Override
+    public Comparator<? super T> getComparator() {
+        if (ordem != BinaryTree.Traversal.IN_ORDER) throw new IllegalStateException();
+        return null; // ordem natural (compareTo)
+    }
+}
@@ -0,0 +1,405 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Operações sobre a árvore inteira executadas em paralelo no ForkJoinPool
+ * comum (usadas pelos métodos parallel* da BinaryTree).
+ *
+ * A divisão segue a própria árvore: cada nó sabe o tamanho da sua
+ * subárvore, então decidir se vale dividir é O(1). Uma subárvore com mais
+ * de LIMIAR valores é separada em filho menor, nó e filho maior: o menor
+ * vai para outra thread (fork) e a descida continua no maior, na mesma
+ * thread. Como o filho entregue tem no máximo metade dos valores, a
+ * cadeia de tarefas esperando join tem profundidade O(log n) mesmo numa
+ * árvore degenerada (NONE/SPLAY), onde só não há o que dividir.
+ * Abaixo do limiar, o percurso é sequencial com pilha explícita, sem
+ * custo de tarefa por nó.
+ *
+ * A árvore não pode ser alterada enquanto a operação roda.
+ */
+final class TreeTasks {
+
+    // abaixo disso uma tarefa a mais custa mais do que o trabalho que ela separa
+    static final int LIMIAR = 1 << 13;
+
+    private TreeTasks() {
+    }
+
+
+    // ============================================================
+    //                     REDUÇÕES EM PARALELO
+    // ============================================================
+    static <T> void forEach(BinaryTree.Node<T> root, Consumer<? super T> acao) {
+        if (root != null) ForkJoinPool.commonPool().invoke(new ParaCada<>(root, acao));
+    }
+
+    static <T, U> U reduce(BinaryTree.Node<T> root, U identidade,
+                           BiFunction<U, ? super T, U> acumulador, BinaryOperator<U> combinador) {
+        if (root == null) return identidade;
+        return ForkJoinPool.commonPool().invoke(new Reducao<>(root, identidade, acumulador, combinador));
+    }
+
+    static <T> long count(BinaryTree.Node<T> root, Predicate<? super T> filtro) {
+        if (root == null) return 0;
+        return ForkJoinPool.commonPool().invoke(new Contagem<>(root, filtro));
+    }
+
+    /**
+     * Pedaço do resultado de uma tarefa: ou já calculado (um nó), ou
+     * uma subárvore entregue a outra thread, a ser esperada com join.
+     */
+    private record Parte<R>(R valor, ForkJoinTask<R> tarefa) {
+        R get() {
+            return tarefa == null ? valor : tarefa.join();
+        }
+    }
+
+    /**
+     * Base das reduções: percorre a subárvore dividindo como descrito na
+     * classe e combina os pedaços na ordem crescente dos valores (só a
+     * associatividade de combinar é exigida, não a comutatividade).
+     */
+    private abstract static class Tarefa<T, R> extends RecursiveTask<R> {
+        private final BinaryTree.Node<T> raiz;
+
+        Tarefa(BinaryTree.Node<T> raiz) {
+            this.raiz = raiz;
+        }
+
+        /** Mesma operação sobre outra subárvore. */
+        abstract Tarefa<T, R> sub(BinaryTree.Node<T> node);
+
+        abstract R inicial();
+
+        /** Acrescenta ao resultado todas as ocorrências do valor do nó. */
+        abstract R acumular(R r, BinaryTree.Node<T> node);
+
+        abstract R combinar(R a, R b);
+
+        @Override
+        protected R compute() {
+            // antes: pedaços que vêm antes da parte que resta, em ordem;
+            // depois: os que vêm depois, em ordem inversa
+            List<Parte<R>> antes = new ArrayList<>(), depois = new ArrayList<>();
+            BinaryTree.Node<T> node = raiz;
+            while (node.size > LIMIAR) {
+                boolean desceEsquerda = BinaryTree.sizeOf(node.left) >= BinaryTree.sizeOf(node.right);
+                BinaryTree.Node<T> menor = desceEsquerda ? node.right : node.left;
+                Parte<R> outro = menor == null ? null : new Parte<>(null, sub(menor).fork());
+                Parte<R> aqui = new Parte<>(acumular(inicial(), node), null);
+
+                if (desceEsquerda) { // nó e direita vêm depois do resto
+                    if (outro != null) depois.add(outro);
+                    depois.add(aqui);
+                    node = node.left;
+                } else {             // esquerda e nó vêm antes
+                    if (outro != null) antes.add(outro);
+                    antes.add(aqui);
+                    node = node.right;
+                }
+                if (node == null) break;
+            }
+
+            R meio = node == null ? inicial() : sequencial(node);
+
+            // junta na ordem; o meio vai sendo calculado enquanto as outras threads trabalham
+            R r = inicial();
+            for (Parte<R> p : antes) r = combinar(r, p.get());
+            r = combinar(r, meio);
+            for (int i = depois.size() - 1; i >= 0; i--) r = combinar(r, depois.get(i).get());
+            return r;
+        }
+
+        /**
+         * Percurso in-ordem sequencial da subárvore, com pilha explícita.
+         */
+        R sequencial(BinaryTree.Node<T> raiz) {
+            @SuppressWarnings("unchecked")
+            BinaryTree.Node<T>[] pilha = (BinaryTree.Node<T>[]) new BinaryTree.Node[BinaryTree.heightOf(raiz) + 1];
+            int topo = 0;
+            R r = inicial();
+            BinaryTree.Node<T> node = raiz;
+            while (node != null || topo > 0) {
+                while (node != null) {
+                    pilha[topo++] = node;
+                    node = node.left;
+                }
+                node = pilha[--topo];
+                r = acumular(r, node);
+                node = node.right;
+            }
+            return r;
+        }
+    }
+
+    private static final class ParaCada<T> extends Tarefa<T, Void> {
+        private final Consumer<? super T> acao;
+
+        ParaCada(BinaryTree.Node<T> raiz, Consumer<? super T> acao) {
+            super(raiz);
+            this.acao = acao;
+        }
+
+        @Override
+        Tarefa<T, Void> sub(BinaryTree.Node<T> node) {
+            return new ParaCada<>(node, acao);
+        }
+
+        @Override
+        Void inicial() {
+            return null;
+        }
+
+        @Override
+        Void acumular(Void r, BinaryTree.Node<T> node) {
+            for (int c = BinaryTree.countOf(node); c > 0; c--)
+                acao.accept(node.value);
+            return null;
+        }
+
+        @Override
+        Void combinar(Void a, Void b) {
+            return null;
+        }
+    }
+
+    private static final class Reducao<T, U> extends Tarefa<T, U> {
+        private final U identidade;
+        private final BiFunction<U, ? super T, U> acumulador;
+        private final BinaryOperator<U> combinador;
+
+        Reducao(BinaryTree.Node<T> raiz, U identidade,
+                BiFunction<U, ? super T, U> acumulador, BinaryOperator<U> combinador) {
+            super(raiz);
+            this.identidade = identidade;
+            this.acumulador = acumulador;
+            this.combinador = combinador;
+        }
+
+        @Override
+        Tarefa<T, U> sub(BinaryTree.Node<T> node) {
+            return new Reducao<>(node, identidade, acumulador, combinador);
+        }
+
+        @Override
+        U inicial() {
+            return identidade;
+        }
+
+        @Override
+        U acumular(U r, BinaryTree.Node<T> node) {
+            for (int c = BinaryTree.countOf(node); c > 0; c--)
+                r = acumulador.apply(r, node.value);
+            return r;
+        }
+
+        @Override
+        U combinar(U a, U b) {
+            return combinador.apply(a, b);
+        }
+    }
+
+    private static final class Contagem<T> extends Tarefa<T, Long> {
+        private final Predicate<? super T> filtro;
+
+        Contagem(BinaryTree.Node<T> raiz, Predicate<? super T> filtro) {
+            super(raiz);
+            this.filtro = filtro;
+        }
+
+        @Override
+        Tarefa<T, Long> sub(BinaryTree.Node<T> node) {
+            return new Contagem<>(node, filtro);
+        }
+
+        @Override
+        Long inicial() {
+            return 0L;
+        }
+
+        @Override
+        Long acumular(Long r, BinaryTree.Node<T> node) {
+            // o filtro é testado uma vez por nó, valendo para todas as ocorrências
+            return filtro.test(node.value) ? r + BinaryTree.countOf(node) : r;
+        }
+
+        @Override
+        Long combinar(Long a, Long b) {
+            return a + b;
+        }
+
+        /**
+         * Mesmo percurso da base, somando num long (sem Long por nó).
+         */
+        @Override
+        Long sequencial(BinaryTree.Node<T> raiz) {
+            @SuppressWarnings("unchecked")
+            BinaryTree.Node<T>[] pilha = (BinaryTree.Node<T>[]) new BinaryTree.Node[BinaryTree.heightOf(raiz) + 1];
+            int topo = 0;
+            long total = 0;
+            BinaryTree.Node<T> node = raiz;
+            while (node != null || topo > 0) {
+                while (node != null) {
+                    pilha[topo++] = node;
+                    node = node.left;
+                }
+                node = pilha[--topo];
+                if (filtro.test(node.value)) total += BinaryTree.countOf(node);
+                node = node.right;
+            }
+            return total;
+        }
+    }
+
+
+    // ============================================================
+    //                  CONSTRUÇÃO EM PARALELO
+    // ============================================================
+    /**
+     * Monta em paralelo a árvore balanceada de valores[ini..fim] (ordenados),
+     * com a mesma forma que BinaryTree.buildBalanced produziria: o meio vira
+     * a raiz e as duas metades são montadas ao mesmo tempo.
+     */
+    static <T extends Comparable<T>> BinaryTree.Node<T> build(BinaryTree<T> tree, T[] valores,
+                                                              int[] contagens, int ini, int fim) {
+        if (fim - ini + 1 <= LIMIAR) return tree.buildBalanced(valores, contagens, ini, fim);
+        Construcao<T> tarefa = new Construcao<>(tree, valores, contagens, ini, fim);
+        ForkJoinPool.commonPool().invoke(tarefa);
+        return tarefa.resultado;
+    }
+
+    private static final class Construcao<T extends Comparable<T>> extends RecursiveAction {
+        private final BinaryTree<T> tree;
+        private final T[] valores;
+        private final int[] contagens;
+        private final int ini, fim;
+        private BinaryTree.Node<T> resultado;
+
+        Construcao(BinaryTree<T> tree, T[] valores, int[] contagens, int ini, int fim) {
+            this.tree = tree;
+            this.valores = valores;
+            this.contagens = contagens;
+            this.ini = ini;
+            this.fim = fim;
+        }
+
+        @Override
+        protected void compute() {
+            if (fim - ini + 1 <= LIMIAR) {
+                resultado = tree.buildBalanced(valores, contagens, ini, fim);
+                return;
+            }
+
+            int meio = (ini + fim) >>> 1;
+            Construcao<T> esquerda = new Construcao<>(tree, valores, contagens, ini, meio - 1);
+            Construcao<T> direita = new Construcao<>(tree, valores, contagens, meio + 1, fim);
+            esquerda.fork();
+            direita.compute();
+            esquerda.join();
+
+            BinaryTree.Node<T> node = tree.newNode(valores[meio]);
+            if (contagens != null) ((BinaryTree.CountedNode<T>) node).count = contagens[meio];
+            node.left = esquerda.resultado;
+            node.right = direita.resultado;
+            BinaryTree.update(node);
+            resultado = node;
+        }
+    }
+
+
+    // ============================================================
+    //              UNIÃO / INTERSEÇÃO / DIFERENÇA
+    // ============================================================
+    enum Operacao { UNIAO, INTERSECAO, DIFERENCA }
+
+    /**
+     * Combina duas subárvores AVL com o algoritmo baseado em join: divide
+     * {@code b} pelo valor da raiz de {@code a}, resolve as duas metades
+     * (a esquerda em outra thread, se as duas forem grandes) e junta com a
+     * raiz. A recursão segue os nós de {@code a}, que deve ser a menor: ela
+     * para assim que a parte de {@code b} fica vazia.
+     *
+     * {@code invertido} diz que {@code a} é a outra árvore e {@code b} a
+     * árvore que recebe o resultado (a cujos valores ficam em caso de
+     * empate, e da qual a diferença é tirada).
+     */
+    static <T extends Comparable<T>> BinaryTree.Node<T> combine(BinaryTree<T> tree, BinaryTree.Node<T> a,
+                                                                BinaryTree.Node<T> b, Operacao op,
+                                                                boolean invertido) {
+        if (BinaryTree.sizeOf(a) + BinaryTree.sizeOf(b) <= LIMIAR) return combinar(tree, a, b, op, invertido);
+        return ForkJoinPool.commonPool().invoke(new Combinacao<>(tree, a, b, op, invertido));
+    }
+
+    private static <T extends Comparable<T>> BinaryTree.Node<T> combinar(BinaryTree<T> tree, BinaryTree.Node<T> a,
+                                                                         BinaryTree.Node<T> b, Operacao op,
+                                                                         boolean invertido) {
+        if (a == null || b == null) {
+            BinaryTree.Node<T> daqui = invertido ? b : a;
+            return switch (op) {
+                case UNIAO -> a == null ? b : a;
+                case INTERSECAO -> null;
+                case DIFERENCA -> daqui;
+            };
+        }
+
+        BinaryTree.Partes<T> partes = tree.dividir(b, a.value);
+        BinaryTree.Node<T> esquerda = a.left, direita = a.right;
+
+        BinaryTree.Node<T> l, r;
+        if (BinaryTree.sizeOf(esquerda) + BinaryTree.sizeOf(partes.menores) > LIMIAR
+                && BinaryTree.sizeOf(direita) + BinaryTree.sizeOf(partes.maiores) > LIMIAR) {
+            Combinacao<T> tarefa = new Combinacao<>(tree, esquerda, partes.menores, op, invertido);
+            tarefa.fork();
+            r = combinar(tree, direita, partes.maiores, op, invertido);
+            l = tarefa.join();
+        } else {
+            l = combinar(tree, esquerda, partes.menores, op, invertido);
+            r = combinar(tree, direita, partes.maiores, op, invertido);
+        }
+
+        // nó deste valor na árvore que recebe o resultado (se houver) e na outra
+        BinaryTree.Node<T> daqui = invertido ? partes.igual : a;
+        BinaryTree.Node<T> dela = invertido ? a : partes.igual;
+        int ca = daqui == null ? 0 : BinaryTree.countOf(daqui);
+        int cb = dela == null ? 0 : BinaryTree.countOf(dela);
+        int c = switch (op) { // ocorrências que ficam
+            case UNIAO -> Math.max(ca, cb);
+            case INTERSECAO -> Math.min(ca, cb);
+            case DIFERENCA -> ca - cb;
+        };
+        if (c <= 0) return tree.juntar(l, r);
+
+        BinaryTree.Node<T> fica = daqui != null ? daqui : dela;
+        if (fica instanceof BinaryTree.CountedNode<T> contado) contado.count = c;
+        return tree.juntar(l, fica, r);
+    }
+
+    private static final class Combinacao<T extends Comparable<T>> extends RecursiveTask<BinaryTree.Node<T>> {
+        private final BinaryTree<T> tree;
+        private final BinaryTree.Node<T> a, b;
+        private final Operacao op;
+        private final boolean invertido;
+
+        Combinacao(BinaryTree<T> tree, BinaryTree.Node<T> a, BinaryTree.Node<T> b, Operacao op,
+                   boolean invertido) {
+            this.tree = tree;
+            this.a = a;
+            this.b = b;
+            this.op = op;
+            this.invertido = invertido;
+        }
+
+        @Override
+        protected BinaryTree.Node<T> compute() {
+            return combinar(tree, a, b, op, invertido);
+        }
+    }
+}
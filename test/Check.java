@@ -0,0 +1,132 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Verificações comuns das classes de teste (TreeModelCheck, TreeSetCheck,
+ * TreeSnapshotCheck). Cada falha lança AssertionError com o contexto;
+ * sem framework de testes, cada classe é rodada pelo seu main.
+ */
+final class Check {
+
+    private static int verificacoes;
+
+    private Check() {
+    }
+
+    static void igual(Object esperado, Object obtido, String contexto) {
+        verificacoes++;
+        if (!Objects.equals(esperado, obtido))
+            throw new AssertionError(contexto + ": esperado " + esperado + ", obtido " + obtido);
+    }
+
+    static void verdade(boolean condicao, String contexto) {
+        verificacoes++;
+        if (!condicao) throw new AssertionError(contexto);
+    }
+
+    /**
+     * Valores da árvore em ordem crescente (com repetições).
+     */
+    static <T extends Comparable<T>> List<T> valores(BinaryTree<T> tree) {
+        List<T> lista = new ArrayList<>();
+        for (T value : tree) lista.add(value);
+        return lista;
+    }
+
+    /**
+     * Confere a estrutura física: altura e tamanho guardados em cada nó,
+     * ordem de busca e, em AVL, o fator de balanceamento. Devolve a
+     * quantidade de lápides encontradas.
+     */
+    static <T extends Comparable<T>> int invariantes(BinaryTree<T> tree, String contexto) {
+        List<BinaryTree.Node<T>> emOrdem = new ArrayList<>();
+        int[] mortos = new int[1];
+        confere(tree.getRoot(), tree.getBalancing() == BinaryTree.Balancing.AVL, emOrdem, mortos, contexto);
+        for (int i = 1; i < emOrdem.size(); i++)
+            verdade(emOrdem.get(i - 1).value.compareTo(emOrdem.get(i).value) <= 0, contexto + ": fora de ordem");
+        igual(tree.getRoot() == null ? 0 : tree.getRoot().size, tree.size(), contexto + ": size()");
+        return mortos[0];
+    }
+
+    private static <T> void confere(BinaryTree.Node<T> node, boolean avl, List<BinaryTree.Node<T>> emOrdem,
+                                    int[] mortos, String contexto) {
+        if (node == null) return;
+        confere(node.left, avl, emOrdem, mortos, contexto);
+        emOrdem.add(node);
+        if (BinaryTree.countOf(node) == 0) mortos[0]++;
+        confere(node.right, avl, emOrdem, mortos, contexto);
+
+        int hl = BinaryTree.heightOf(node.left), hr = BinaryTree.heightOf(node.right);
+        igual(1 + Math.max(hl, hr), node.height, contexto + ": altura do nó " + node.value);
+        igual(BinaryTree.countOf(node) + BinaryTree.sizeOf(node.left) + BinaryTree.sizeOf(node.right), node.size,
+                contexto + ": tamanho do nó " + node.value);
+        if (avl) verdade(Math.abs(hl - hr) <= 1, contexto + ": AVL desbalanceada em " + node.value);
+    }
+
+
+    /**
+     * Forma física da árvore (lápides incluídas), para comparar antes e depois.
+     */
+    static String forma(BinaryTree<?> tree) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            TreePrinter.toDot(tree.getRoot(), sb);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return sb.toString();
+    }
+
+
+    // ============================================================
+    //                         MODELO
+    // ============================================================
+    /**
+     * Árvore com operações aleatórias (insert, insertAll, remove) sobre
+     * valores em [base, base + faixa); o modelo recebe as ocorrências.
+     * Com {@code distinta}, uma árvore que não é multiset não recebe
+     * valores repetidos (as operações de conjunto supõem valores únicos).
+     */
+    static BinaryTree<Integer> aleatoria(Random random, BinaryTree.Balancing balancing, boolean multiset,
+                                         boolean lazy, boolean distinta, int n, int base, int faixa,
+                                         TreeMap<Integer, Integer> modelo) {
+        BinaryTree<Integer> tree = vazia(balancing, multiset, lazy);
+        List<Integer> lote = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            int v = base + random.nextInt(faixa);
+            if (distinta && !multiset && modelo.containsKey(v)) continue;
+            modelo.merge(v, 1, Integer::sum);
+            if (random.nextBoolean()) lote.add(v);
+            else tree.insert(v);
+        }
+        tree.insertAll(lote);
+        for (int i = 0; i < n / 4; i++) { // deixa lápides no modo lazy
+            int v = base + random.nextInt(faixa);
+            tree.remove(v);
+            modelo.computeIfPresent(v, (k, c) -> c == 1 ? null : c - 1);
+        }
+        return tree;
+    }
+
+    static BinaryTree<Integer> vazia(BinaryTree.Balancing balancing, boolean multiset, boolean lazy) {
+        BinaryTree<Integer> tree = new BinaryTree<>(balancing, null, multiset);
+        if (lazy) tree.enableLazyDeletion(0.5);
+        return tree;
+    }
+
+    static List<Integer> lista(Map<Integer, Integer> modelo) {
+        List<Integer> lista = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> e : modelo.entrySet())
+            for (int i = 0; i < e.getValue(); i++) lista.add(e.getKey());
+        return lista;
+    }
+
+    static void fim(String nome) {
+        System.out.println(nome + ": " + verificacoes + " verificações ok");
+    }
+}
@@ -0,0 +1,164 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compara as operações básicas da BinaryTree com um modelo (TreeMap valor →
+ * ocorrências) em cada combinação de balanceamento, multiset e remoção
+ * lazy: insert, insertAll, remove, removeAll, contains, count, rank,
+ * select, countLessThan, rangeCount, depth e pathTo, além da estrutura
+ * física (alturas, tamanhos, AVL, quantidade de lápides).
+ *
+ * Também confere que as leituras não alteram a árvore (fora do SPLAY),
+ * nem quando várias threads leem ao mesmo tempo, e que o LcaIndex
+ * responde como a própria árvore.
+ *
+ * Uso: java TreeModelCheck
+ */
+public class TreeModelCheck {
+
+    private static final Random random = new Random(25);
+
+    public static void main(String[] args) throws Exception {
+        for (BinaryTree.Balancing balancing : BinaryTree.Balancing.values())
+            for (boolean multiset : new boolean[] {false, true})
+                for (boolean lazy : new boolean[] {false, true}) {
+                    String contexto = balancing + (multiset ? " multiset" : "") + (lazy ? " lazy" : "");
+                    for (int i = 0; i < 30; i++)
+                        operacoes(balancing, multiset, lazy, 1 + random.nextInt(100), contexto);
+                    if (balancing != BinaryTree.Balancing.SPLAY) {
+                        for (int i = 0; i < 30; i++) lca(balancing, multiset, lazy, contexto);
+                        leiturasSimultaneas(balancing, multiset, lazy, contexto);
+                    }
+                }
+        Check.fim("TreeModelCheck");
+    }
+
+    private static void operacoes(BinaryTree.Balancing balancing, boolean multiset, boolean lazy, int faixa,
+                                  String contexto) {
+        BinaryTree<Integer> tree = Check.vazia(balancing, multiset, lazy);
+        TreeMap<Integer, Integer> modelo = new TreeMap<>();
+        for (int passo = 0; passo < 400; passo++) {
+            int v = random.nextInt(faixa);
+            String aqui = contexto + " passo " + passo + " valor " + v;
+            switch (random.nextInt(10)) {
+                case 0, 1, 2 -> {
+                    tree.insert(v);
+                    modelo.merge(v, 1, Integer::sum);
+                }
+                case 3 -> {
+                    List<Integer> lote = new ArrayList<>();
+                    for (int i = random.nextInt(20); i > 0; i--) lote.add(random.nextInt(faixa));
+                    tree.insertAll(lote);
+                    for (int x : lote) modelo.merge(x, 1, Integer::sum);
+                }
+                case 4, 5, 6 -> {
+                    tree.remove(v);
+                    modelo.computeIfPresent(v, (k, c) -> c == 1 ? null : c - 1);
+                }
+                case 7 -> {
+                    Integer removidas = modelo.remove(v);
+                    Check.igual(removidas == null ? 0 : removidas, tree.removeAll(v), aqui + " removeAll");
+                }
+                default -> consultas(tree, modelo, v, aqui);
+            }
+            Check.igual(tree.tombstones(), Check.invariantes(tree, aqui), aqui + " lápides");
+            Check.igual(Check.lista(modelo), Check.valores(tree), aqui + " valores");
+        }
+    }
+
+    private static void consultas(BinaryTree<Integer> tree, TreeMap<Integer, Integer> modelo, int v, String contexto) {
+        int menores = 0;
+        for (int c : modelo.headMap(v).values()) menores += c;
+        int ocorrencias = modelo.getOrDefault(v, 0);
+        boolean estatico = tree.getBalancing() != BinaryTree.Balancing.SPLAY;
+        String antes = estatico ? Check.forma(tree) : null;
+
+        Check.igual(ocorrencias > 0, tree.contains(v), contexto + " contains");
+        Check.igual(ocorrencias, tree.count(v), contexto + " count");
+        Check.igual(menores, tree.countLessThan(v), contexto + " countLessThan");
+        Check.igual(ocorrencias > 0 ? menores : -1, tree.rank(v), contexto + " rank");
+        Check.igual(ocorrencias, tree.rangeCount(v, v), contexto + " rangeCount");
+        if (tree.size() > 0) {
+            int k = random.nextInt(tree.size());
+            Check.igual(Check.lista(modelo).get(k), tree.select(k), contexto + " select(" + k + ")");
+        }
+
+        List<Integer> caminho = tree.pathTo(v);
+        Check.igual(ocorrencias > 0, !caminho.isEmpty(), contexto + " pathTo encontrou");
+        if (estatico) {
+            int nivel = tree.depth(v);
+            Check.igual(caminho.size() - 1, nivel, contexto + " depth = tamanho de pathTo - 1");
+            if (nivel >= 0) Check.igual(v, caminho.get(nivel), contexto + " pathTo termina no valor");
+            List<Integer> visitados = new ArrayList<>();
+            tree.visitPath(v, visitados::add);
+            Check.igual(caminho, visitados, contexto + " visitPath");
+            Check.igual(antes, Check.forma(tree), contexto + " leituras não alteram a árvore");
+        }
+    }
+
+    /**
+     * LcaIndex (montado com lápides pendentes) responde como a árvore e
+     * não a altera.
+     */
+    private static void lca(BinaryTree.Balancing balancing, boolean multiset, boolean lazy, String contexto) {
+        TreeMap<Integer, Integer> modelo = new TreeMap<>();
+        BinaryTree<Integer> tree = Check.aleatoria(random, balancing, multiset, lazy, true, 1 + random.nextInt(80),
+                0, 100, modelo);
+        String antes = Check.forma(tree);
+        int lapides = tree.tombstones();
+        LcaIndex<Integer> indice = new LcaIndex<>(tree);
+        Check.igual(antes, Check.forma(tree), contexto + " LcaIndex não altera a árvore");
+        Check.igual(lapides, tree.tombstones(), contexto + " LcaIndex mantém as lápides");
+        Check.igual(tree.size() + lapides, indice.size(), contexto + " ids");
+
+        for (int i = 0; i < 50; i++) {
+            int a = random.nextInt(100), b = random.nextInt(100);
+            String aqui = contexto + " LCA(" + a + ", " + b + ")";
+            Check.igual(tree.depth(a), indice.depth(a), aqui + " depth");
+            boolean existem = modelo.containsKey(a) && modelo.containsKey(b);
+            Check.igual(existem ? tree.lowestCommonAncestor(a, b) : null, indice.lowestCommonAncestor(a, b), aqui);
+            Check.igual(existem ? tree.pathBetween(a, b).size() - 1 : -1, indice.distance(a, b), aqui + " distance");
+        }
+    }
+
+    /**
+     * Buscas de várias threads ao mesmo tempo, sem escritor, dão as mesmas
+     * respostas que a busca sequencial (nenhuma delas escreve em estado
+     * compartilhado da árvore, nem com lápides).
+     */
+    private static void leiturasSimultaneas(BinaryTree.Balancing balancing, boolean multiset, boolean lazy,
+                                            String contexto) throws Exception {
+        BinaryTree<Integer> tree = Check.aleatoria(random, balancing, multiset, lazy, false, 5000, 0, 2000,
+                new TreeMap<>());
+        int[] nivel = new int[2000];
+        List<List<Integer>> caminhos = new ArrayList<>();
+        for (int v = 0; v < nivel.length; v++) {
+            nivel[v] = tree.depth(v);
+            caminhos.add(tree.pathTo(v));
+        }
+
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> resultados = new ArrayList<>();
+            for (int t = 0; t < 4; t++)
+                resultados.add(threads.submit(() -> {
+                    for (int rodada = 0; rodada < 20; rodada++)
+                        for (int v = 0; v < nivel.length; v++) {
+                            if (tree.depth(v) != nivel[v] || tree.contains(v) != nivel[v] >= 0
+                                    || !tree.pathTo(v).equals(caminhos.get(v)))
+                                return "valor " + v;
+                        }
+                    return null;
+                }));
+            for (Future<String> resultado : resultados)
+                Check.igual(null, resultado.get(), contexto + " leituras simultâneas");
+        } finally {
+            threads.shutdown();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Compara join, split e as operações de conjunto da BinaryTree com um
+ * modelo (TreeMap valor → ocorrências), em cada combinação de
+ * balanceamento, multiset e remoção lazy.
+ *
+ * Uso: java TreeSetCheck
+ */
+public class TreeSetCheck {
+
+    private static final Random random = new Random(24);
+
+    public static void main(String[] args) {
+        casosRevisados();
+        for (BinaryTree.Balancing balancing : BinaryTree.Balancing.values())
+            for (boolean multiset : new boolean[] {false, true})
+                for (boolean lazy : new boolean[] {false, true}) {
+                    String contexto = balancing + (multiset ? " multiset" : "") + (lazy ? " lazy" : "");
+                    for (int i = 0; i < 200; i++) {
+                        split(balancing, multiset, lazy, 1 + random.nextInt(60), contexto);
+                        join(balancing, multiset, lazy, contexto);
+                        for (TreeTasks.Operacao op : TreeTasks.Operacao.values())
+                            conjunto(balancing, multiset, lazy, op, 1 + random.nextInt(80), contexto);
+                    }
+                }
+        // acima de TreeTasks.LIMIAR: caminho paralelo do AVL
+        for (TreeTasks.Operacao op : TreeTasks.Operacao.values()) {
+            conjunto(BinaryTree.Balancing.AVL, false, false, op, 60_000, "AVL grande");
+            conjunto(BinaryTree.Balancing.AVL, true, false, op, 60_000, "AVL multiset grande");
+        }
+        incompativeis();
+        Check.fim("TreeSetCheck");
+    }
+
+    /**
+     * Valores iguais dos dois lados de um nó igual (depois de rotações ou
+     * de um build balanceado) precisam ir todos para a árvore dos maiores.
+     */
+    private static void casosRevisados() {
+        BinaryTree<Integer> avl = new BinaryTree<>(BinaryTree.Balancing.AVL);
+        avl.insertAll(List.of(5, 5, 5, 5, 5, 5, 5));
+        BinaryTree<Integer> maiores = avl.split(5);
+        Check.igual(List.of(), Check.valores(avl), "split de 5 repetidos: menores");
+        Check.igual(Collections.nCopies(7, 5), Check.valores(maiores), "split de 5 repetidos: maiores");
+
+        BinaryTree<Integer> none = new BinaryTree<>();
+        for (int v : new int[] {5, 5, 5, 1, 2, 3}) none.insert(v);
+        maiores = none.split(5);
+        Check.igual(List.of(1, 2, 3), Check.valores(none), "split NONE com repetidos: menores");
+        Check.igual(List.of(5, 5, 5), Check.valores(maiores), "split NONE com repetidos: maiores");
+    }
+
+    private static void split(BinaryTree.Balancing balancing, boolean multiset, boolean lazy, int n,
+                              String contexto) {
+        TreeMap<Integer, Integer> modelo = new TreeMap<>();
+        BinaryTree<Integer> tree = Check.aleatoria(random, balancing, multiset, lazy, false, n, 0, n / 3 + 1,
+                modelo);
+        int pivo = random.nextInt(n / 3 + 3) - 1;
+
+        BinaryTree<Integer> maiores = tree.split(pivo);
+        contexto += " split(" + pivo + ")";
+        Check.igual(Check.lista(modelo.headMap(pivo)), Check.valores(tree), contexto + " menores");
+        Check.igual(Check.lista(modelo.tailMap(pivo)), Check.valores(maiores), contexto + " maiores");
+        Check.invariantes(tree, contexto + " menores");
+        Check.invariantes(maiores, contexto + " maiores");
+    }
+
+    private static void join(BinaryTree.Balancing balancing, boolean multiset, boolean lazy, String contexto) {
+        int meio = 50;
+        TreeMap<Integer, Integer> modelo = new TreeMap<>();
+        BinaryTree<Integer> menores = Check.aleatoria(random, balancing, multiset, lazy, false,
+                random.nextInt(40), 0, meio, modelo);
+        BinaryTree<Integer> maiores = Check.aleatoria(random, balancing, multiset, lazy, false,
+                random.nextInt(40), meio + 1, meio, modelo);
+        modelo.merge(meio, 1, Integer::sum);
+
+        BinaryTree<Integer> junta = BinaryTree.join(menores, meio, maiores);
+        contexto += " join";
+        Check.igual(Check.lista(modelo), Check.valores(junta), contexto);
+        Check.invariantes(junta, contexto);
+        Check.igual(0, menores.size() + maiores.size(), contexto + ": originais vazias");
+
+        // valor fora da ordem é rejeitado
+        BinaryTree<Integer> a = Check.vazia(balancing, multiset, lazy), b = Check.vazia(balancing, multiset, lazy);
+        a.insert(10);
+        b.insert(20);
+        try {
+            BinaryTree.join(a, 30, b);
+            throw new AssertionError(contexto + ": join fora de ordem aceito");
+        } catch (IllegalArgumentException esperado) {
+            Check.verdade(true, contexto);
+        }
+    }
+
+    private static void conjunto(BinaryTree.Balancing balancing, boolean multiset, boolean lazy,
+                                 TreeTasks.Operacao op, int n, String contexto) {
+        TreeMap<Integer, Integer> ma = new TreeMap<>(), mb = new TreeMap<>();
+        int faixa = multiset ? n / 2 + 1 : 2 * n;
+        BinaryTree<Integer> a = Check.aleatoria(random, balancing, multiset, lazy, true, n, 0, faixa, ma);
+        BinaryTree<Integer> b = Check.aleatoria(random, balancing, multiset, lazy, true,
+                1 + random.nextInt(n), 0, faixa, mb);
+
+        TreeMap<Integer, Integer> esperado = new TreeMap<>();
+        for (int v : union(ma, mb).keySet()) {
+            int ca = ma.getOrDefault(v, 0), cb = mb.getOrDefault(v, 0);
+            int c = switch (op) {
+                case UNIAO -> Math.max(ca, cb);
+                case INTERSECAO -> Math.min(ca, cb);
+                case DIFERENCA -> ca - cb;
+            };
+            if (c > 0) esperado.put(v, c);
+        }
+
+        switch (op) {
+            case UNIAO -> a.union(b);
+            case INTERSECAO -> a.intersection(b);
+            case DIFERENCA -> a.difference(b);
+        }
+        contexto += " " + op + " (" + n + ")";
+        Check.igual(Check.lista(esperado), Check.valores(a), contexto);
+        Check.igual(0, b.size(), contexto + ": a outra fica vazia");
+        Check.invariantes(a, contexto);
+    }
+
+    private static void incompativeis() {
+        BinaryTree<Integer> avl = new BinaryTree<>(BinaryTree.Balancing.AVL);
+        BinaryTree<Integer> none = new BinaryTree<>(BinaryTree.Balancing.NONE);
+        BinaryTree<Integer> multiset = new BinaryTree<>(BinaryTree.Balancing.AVL, null, true);
+        for (BinaryTree<Integer> outra : List.of(none, multiset)) {
+            try {
+                avl.union(outra);
+                throw new AssertionError("union de árvores incompatíveis aceita");
+            } catch (IllegalArgumentException esperado) {
+                Check.verdade(true, "incompatíveis");
+            }
+        }
+    }
+
+
+    private static TreeMap<Integer, Integer> union(Map<Integer, Integer> a, Map<Integer, Integer> b) {
+        TreeMap<Integer, Integer> todos = new TreeMap<>(a);
+        todos.putAll(b);
+        return todos;
+    }
+}
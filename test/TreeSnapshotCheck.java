@@ -0,0 +1,153 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Grava e carrega snapshots (TreeSnapshot) em cada combinação de
+ * balanceamento, multiset e remoção lazy, e confere que arquivos
+ * truncados, adulterados ou de outro balanceamento são recusados com
+ * IOException.
+ *
+ * Uso: java TreeSnapshotCheck
+ */
+public class TreeSnapshotCheck {
+
+    private static final Random random = new Random(9);
+
+    /**
+     * Inteiro em 4 bytes, para os testes.
+     */
+    static final class IntCodec implements TreeCodec<Integer> {
+        @Override
+        public int maxEncodedSize(Integer value) {
+            return 4;
+        }
+
+        @Override
+        public void encode(Integer value, ByteBuffer out) {
+            out.putInt(value);
+        }
+
+        @Override
+        public Integer decode(ByteBuffer in) {
+            return in.getInt();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path arquivo = Files.createTempFile("arvore", ".snap");
+        try {
+            for (BinaryTree.Balancing balancing : BinaryTree.Balancing.values())
+                for (boolean multiset : new boolean[] {false, true})
+                    for (boolean lazy : new boolean[] {false, true}) {
+                        String contexto = balancing + (multiset ? " multiset" : "") + (lazy ? " lazy" : "");
+                        for (int i = 0; i < 100; i++)
+                            idaEVolta(balancing, multiset, lazy, random.nextInt(300), arquivo, contexto);
+                        truncado(balancing, multiset, arquivo, contexto);
+                    }
+            pessoas(arquivo);
+            outroBalanceamento(arquivo);
+            versaoAntiga(arquivo);
+        } finally {
+            Files.deleteIfExists(arquivo);
+        }
+        Check.fim("TreeSnapshotCheck");
+    }
+
+    private static void idaEVolta(BinaryTree.Balancing balancing, boolean multiset, boolean lazy, int n,
+                                  Path arquivo, String contexto) throws IOException {
+        TreeMap<Integer, Integer> modelo = new TreeMap<>();
+        BinaryTree<Integer> tree = Check.aleatoria(random, balancing, multiset, lazy, false, n, 0, n / 2 + 1, modelo);
+        int lapides = tree.tombstones();
+        List<Integer> forma = preOrdem(tree);
+        String fisica = Check.forma(tree);
+
+        TreeSnapshot.write(tree, arquivo, new IntCodec());
+        Check.igual(fisica, Check.forma(tree), contexto + " write não altera a árvore");
+        Check.igual(lapides, tree.tombstones(), contexto + " write mantém as lápides");
+        BinaryTree<Integer> lida = TreeSnapshot.read(arquivo, new IntCodec(), balancing);
+        Check.igual(Check.lista(modelo), Check.valores(lida), contexto + " valores");
+        Check.igual(multiset, lida.isMultiset(), contexto + " multiset");
+        Check.igual(0, Check.invariantes(lida, contexto), contexto + " lápides gravadas");
+        if (lapides == 0) Check.igual(forma, preOrdem(lida), contexto + " forma");
+    }
+
+    /**
+     * Todo prefixo próprio do arquivo é recusado com IOException.
+     */
+    private static void truncado(BinaryTree.Balancing balancing, boolean multiset, Path arquivo, String contexto)
+            throws IOException {
+        BinaryTree<Integer> tree = Check.aleatoria(random, balancing, multiset, false, false, 40, 0, 20,
+                new TreeMap<>());
+        TreeSnapshot.write(tree, arquivo, new IntCodec());
+        byte[] inteiro = Files.readAllBytes(arquivo);
+        for (int tamanho = 0; tamanho < inteiro.length; tamanho++) {
+            Files.write(arquivo, Arrays.copyOf(inteiro, tamanho));
+            try {
+                TreeSnapshot.read(arquivo, new IntCodec(), balancing);
+                throw new AssertionError(contexto + ": arquivo truncado em " + tamanho + " bytes aceito");
+            } catch (IOException esperado) {
+                Check.verdade(true, contexto);
+            }
+        }
+    }
+
+    private static void pessoas(Path arquivo) throws IOException {
+        BinaryTree<Person> tree = new BinaryTree<>(BinaryTree.Balancing.AVL, Person::sortPrefix);
+        String[] nomes = {"Maria", "ana", "Ângela", "Zé", "Álvaro", "Bruno", "Ana", "carlos", "Émile", "🙂"};
+        for (int i = 0; i < 500; i++)
+            tree.insert(new Person(nomes[random.nextInt(nomes.length)] + random.nextInt(50), random.nextInt(90)));
+
+        TreeSnapshot.write(tree, arquivo, new PersonCodec());
+        BinaryTree<Person> lida = TreeSnapshot.read(arquivo, new PersonCodec(), tree.getBalancing(),
+                tree.getPrefixo());
+        Check.igual(Check.valores(tree), Check.valores(lida), "Person valores");
+        Check.igual(preOrdem(tree), preOrdem(lida), "Person forma");
+        for (Person p : Check.valores(tree))
+            Check.verdade(lida.contains(p), "Person busca pelo prefixo: " + p);
+    }
+
+    /**
+     * Uma NONE degenerada não pode ser carregada como AVL.
+     */
+    private static void outroBalanceamento(Path arquivo) throws IOException {
+        BinaryTree<Integer> none = new BinaryTree<>(BinaryTree.Balancing.NONE);
+        for (int i = 0; i < 1000; i++) none.insert(i);
+        TreeSnapshot.write(none, arquivo, new IntCodec());
+        try {
+            TreeSnapshot.read(arquivo, new IntCodec(), BinaryTree.Balancing.AVL);
+            throw new AssertionError("snapshot NONE carregado como AVL");
+        } catch (IOException esperado) {
+            Check.verdade(true, "outro balanceamento");
+        }
+    }
+
+    /**
+     * Arquivo da versão 2 (sem o balanceamento) de uma NONE degenerada,
+     * carregado como AVL: a forma é reconstruída balanceada.
+     */
+    private static void versaoAntiga(Path arquivo) throws IOException {
+        BinaryTree<Integer> none = new BinaryTree<>(BinaryTree.Balancing.NONE);
+        for (int i = 0; i < 1000; i++) none.insert(i);
+        TreeSnapshot.write(none, arquivo, new IntCodec());
+        byte[] bytes = Files.readAllBytes(arquivo);
+        ByteBuffer.wrap(bytes).putInt(4, 2).putInt(8, 0); // versão 2, opções sem balanceamento
+        Files.write(arquivo, bytes);
+
+        BinaryTree<Integer> avl = TreeSnapshot.read(arquivo, new IntCodec(), BinaryTree.Balancing.AVL);
+        Check.igual(Check.valores(none), Check.valores(avl), "versão 2 valores");
+        Check.invariantes(avl, "versão 2 como AVL");
+    }
+
+    private static <T extends Comparable<T>> List<T> preOrdem(BinaryTree<T> tree) {
+        List<T> lista = new ArrayList<>();
+        tree.iterator(BinaryTree.Traversal.PRE_ORDER).forEachRemaining(lista::add);
+        return lista;
+    }
+}